@@ -0,0 +1,17 @@
+@echo off
+REM PC Sale POS System - Benchmarks (see run-bench.ps1 for setup and examples)
+REM Usage: bench\run-bench.bat [--seed copies sales] [--only prefix] [--warmup n] [--iterations n] [--time ms]
+
+set ROOT=%~dp0..
+if "%PCSALE_BENCH_DB_URL%"=="" set PCSALE_BENCH_DB_URL=jdbc:mysql://localhost:3306/pc_sale_db_bench?useServerPrepStmts=true^&rewriteBatchedStatements=true
+
+if not exist "%~dp0bin" mkdir "%~dp0bin"
+
+dir /s /b "%ROOT%\src\*.java" "%~dp0src\*.java" > "%~dp0bin\sources.txt"
+javac -nowarn -encoding UTF-8 -d "%~dp0bin" -cp "%ROOT%\lib\*" @"%~dp0bin\sources.txt"
+if %ERRORLEVEL% NEQ 0 (
+    echo ERROR: Compilation failed!
+    exit /b 1
+)
+
+java "-Dpcsale.db.url=%PCSALE_BENCH_DB_URL%" -cp "%~dp0bin;%ROOT%\lib\*" com.pcsale.bench.HotPathBenchmarks %*
@@ -0,0 +1,33 @@
+# PC Sale POS System - Benchmarks
+# Compiles the application and the benchmark harness, then runs the hot path benchmarks.
+#
+# Use a scratch copy of the database - the checkout benchmarks insert sales:
+#   mysql -u root -e "CREATE DATABASE pc_sale_db_bench"
+#   (import the schema, sample_data.sql and migrations\V*.sql into pc_sale_db_bench)
+#
+# Examples:
+#   .\bench\run-bench.ps1 --seed 100 200000        # first run: scale the data up, then benchmark
+#   .\bench\run-bench.ps1 --only sale.create       # only the checkout benchmarks
+#   .\bench\run-bench.ps1 --warmup 3 --iterations 10 --time 5000
+
+$projectRoot = Split-Path $PSScriptRoot -Parent
+$benchBin = Join-Path $PSScriptRoot "bin"
+$libDir = Join-Path $projectRoot "lib"
+$dbUrl = if ($env:PCSALE_BENCH_DB_URL) { $env:PCSALE_BENCH_DB_URL } else {
+    "jdbc:mysql://localhost:3306/pc_sale_db_bench?useServerPrepStmts=true&rewriteBatchedStatements=true"
+}
+
+if (-not (Test-Path $benchBin)) {
+    New-Item -ItemType Directory -Path $benchBin | Out-Null
+}
+
+Write-Host "Compiling application and benchmarks..." -ForegroundColor Green
+$sources = @(Get-ChildItem -Path (Join-Path $projectRoot "src") -Filter "*.java" -Recurse) +
+           @(Get-ChildItem -Path (Join-Path $PSScriptRoot "src") -Filter "*.java" -Recurse)
+javac -nowarn -encoding UTF-8 -d $benchBin -cp "$libDir\*" ($sources | ForEach-Object { $_.FullName })
+if ($LASTEXITCODE -ne 0) {
+    Write-Host "Compilation failed!" -ForegroundColor Red
+    exit 1
+}
+
+java "-Dpcsale.db.url=$dbUrl" -cp "$benchBin;$libDir\*" com.pcsale.bench.HotPathBenchmarks @args
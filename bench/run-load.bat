@@ -0,0 +1,18 @@
+@echo off
+REM PC Sale POS System - Till load generator (see run-load.ps1 for setup and examples)
+REM Usage: bench\run-load.bat [--tills n] [--duration s] [--scan-rate items/s] [--basket-mean n] [--basket-max n]
+REM                           [--payments cash=60,card=30,mobile=10] [--hot-products n] [--hot-stock n] [--hot-share p]
+
+set ROOT=%~dp0..
+if "%PCSALE_BENCH_DB_URL%"=="" set PCSALE_BENCH_DB_URL=jdbc:mysql://localhost:3306/pc_sale_db_bench?useServerPrepStmts=true^&rewriteBatchedStatements=true
+
+if not exist "%~dp0bin" mkdir "%~dp0bin"
+
+dir /s /b "%ROOT%\src\*.java" "%~dp0src\*.java" > "%~dp0bin\sources.txt"
+javac -nowarn -encoding UTF-8 -d "%~dp0bin" -cp "%ROOT%\lib\*" @"%~dp0bin\sources.txt"
+if %ERRORLEVEL% NEQ 0 (
+    echo ERROR: Compilation failed!
+    exit /b 1
+)
+
+java "-Dpcsale.db.url=%PCSALE_BENCH_DB_URL%" -cp "%~dp0bin;%ROOT%\lib\*" com.pcsale.bench.TillLoadGenerator %*
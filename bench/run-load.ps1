@@ -0,0 +1,32 @@
+# PC Sale POS System - Till load generator
+# Compiles the application and the benchmark harness, then simulates several tills ringing up sales.
+#
+# Uses the same scratch database as run-bench.ps1 (seed it there first with --seed).
+#
+# Examples:
+#   .\bench\run-load.ps1 --tills 8 --duration 120                 # 8 cashiers at 2 scans/s
+#   .\bench\run-load.ps1 --tills 32 --scan-rate 0 --duration 60    # saturate the database
+#   .\bench\run-load.ps1 --tills 16 --hot-products 5 --hot-stock 100 --hot-share 0.3   # provoke oversells
+#   .\bench\run-load.ps1 --basket-mean 12 --payments cash=20,card=70,mobile=10
+
+$projectRoot = Split-Path $PSScriptRoot -Parent
+$benchBin = Join-Path $PSScriptRoot "bin"
+$libDir = Join-Path $projectRoot "lib"
+$dbUrl = if ($env:PCSALE_BENCH_DB_URL) { $env:PCSALE_BENCH_DB_URL } else {
+    "jdbc:mysql://localhost:3306/pc_sale_db_bench?useServerPrepStmts=true&rewriteBatchedStatements=true"
+}
+
+if (-not (Test-Path $benchBin)) {
+    New-Item -ItemType Directory -Path $benchBin | Out-Null
+}
+
+Write-Host "Compiling application and benchmarks..." -ForegroundColor Green
+$sources = @(Get-ChildItem -Path (Join-Path $projectRoot "src") -Filter "*.java" -Recurse) +
+           @(Get-ChildItem -Path (Join-Path $PSScriptRoot "src") -Filter "*.java" -Recurse)
+javac -nowarn -encoding UTF-8 -d $benchBin -cp "$libDir\*" ($sources | ForEach-Object { $_.FullName })
+if ($LASTEXITCODE -ne 0) {
+    Write-Host "Compilation failed!" -ForegroundColor Red
+    exit 1
+}
+
+java "-Dpcsale.db.url=$dbUrl" -cp "$benchBin;$libDir\*" com.pcsale.bench.TillLoadGenerator @args
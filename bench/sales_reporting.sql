@@ -0,0 +1,62 @@
+-- Benchmark: DATE(sale_date) = CURDATE() versus a half-open range on sale_date
+--
+-- Run against a scratch copy of the database (it inserts 1,000,000 sales):
+--   mysql -u root pc_sale_db_bench < bench/sales_reporting.sql
+-- Requires MySQL 8.0.18+ for EXPLAIN ANALYZE. Run it once before and once
+-- after migrations/V1__reporting_indexes.sql and V3__sales_keyset_index.sql
+-- and compare the "actual time" of each pair. No results are recorded here;
+-- they depend on the server and its buffer pool, so measure on your own.
+
+SET SESSION cte_max_recursion_depth = 1000000;
+
+-- 1,000,000 sales spread evenly over the last two years
+INSERT INTO sales (invoice_no, customer_id, user_id, sale_date, subtotal, tax, discount,
+                   total_amount, amount_paid, payment_method)
+WITH RECURSIVE seq (n) AS (
+    SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 1000000
+)
+SELECT CONCAT('BENCH', LPAD(n, 7, '0')),
+       NULL,
+       (SELECT MIN(id) FROM users),
+       NOW() - INTERVAL (n * 63) SECOND,
+       100.00, 0.00, 0.00, 100.00, 100.00, 'cash'
+FROM seq;
+
+ANALYZE TABLE sales;
+
+-- Today's total: before
+EXPLAIN ANALYZE
+SELECT COALESCE(SUM(total_amount), 0) FROM sales WHERE DATE(sale_date) = CURDATE();
+
+-- Today's total: after
+EXPLAIN ANALYZE
+SELECT COALESCE(SUM(total_amount), 0) FROM sales
+WHERE sale_date >= CURDATE() AND sale_date < CURDATE() + INTERVAL 1 DAY;
+
+-- Hourly distribution: before
+EXPLAIN ANALYZE
+SELECT HOUR(sale_date), COUNT(*), SUM(total_amount) FROM sales
+WHERE DATE(sale_date) = CURDATE() GROUP BY HOUR(sale_date);
+
+-- Hourly distribution: after
+EXPLAIN ANALYZE
+SELECT HOUR(sale_date), COUNT(*), SUM(total_amount) FROM sales
+WHERE sale_date >= CURDATE() AND sale_date < CURDATE() + INTERVAL 1 DAY
+GROUP BY HOUR(sale_date);
+
+-- Last 7 days (already a range; benefits from the covering index)
+EXPLAIN ANALYZE
+SELECT DATE(sale_date), COUNT(*), SUM(total_amount) FROM sales
+WHERE sale_date >= DATE_SUB(CURDATE(), INTERVAL 7 DAY) GROUP BY DATE(sale_date);
+
+-- Sales history page (keyset seek on (sale_date, id), newest first)
+EXPLAIN ANALYZE
+SELECT id, invoice_no, sale_date, total_amount FROM sales
+WHERE sale_date >= CURDATE() - INTERVAL 30 DAY
+  AND (sale_date < NOW() - INTERVAL 1 DAY
+       OR (sale_date = NOW() - INTERVAL 1 DAY AND id < 1000000))
+ORDER BY sale_date DESC, id DESC
+LIMIT 100;
+
+-- Clean up
+DELETE FROM sales WHERE invoice_no LIKE 'BENCH%';
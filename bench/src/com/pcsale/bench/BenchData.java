@@ -0,0 +1,115 @@
+package com.pcsale.bench;
+
+import com.pcsale.dao.SalesRollupDAO;
+import com.pcsale.util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BenchData - Scales the sample data up to a realistic size for benchmarking
+ *
+ * Expects a scratch database with the normal schema, sample_data.sql and the
+ * migrations applied. Adds copies of every sample product (barcode prefix
+ * "BN", large stock so checkout benchmarks never run out) and a history of
+ * sales with items spread over the last DAYS days (invoice prefix "BENCH"),
+ * then rebuilds the report rollups for those days.
+ */
+public class BenchData {
+
+    private static final int DAYS = 365;
+
+    /**
+     * @param productCopies how many copies of each sample product to add
+     * @param sales number of historical sales to add
+     */
+    public static void seed(int productCopies, int sales) throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute("SET SESSION cte_max_recursion_depth = " + Math.max(1000, Math.max(productCopies, sales) + 1));
+
+            System.out.println("Seeding " + productCopies + " copies of each sample product...");
+            stmt.executeUpdate(
+                "INSERT INTO products (barcode, name, category_id, supplier_id, cost_price, selling_price, " +
+                "stock_quantity, reorder_level, unit, status) " +
+                "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + productCopies + ") " +
+                "SELECT CONCAT('BN', LPAD(seq.n, 5, '0'), p.barcode), CONCAT(p.name, ' #', seq.n), " +
+                "p.category_id, p.supplier_id, p.cost_price, p.selling_price, 1000000, p.reorder_level, p.unit, 'active' " +
+                "FROM products p CROSS JOIN seq WHERE p.barcode NOT LIKE 'BN%'");
+
+            System.out.println("Seeding " + sales + " sales over the last " + DAYS + " days...");
+            int userId = firstId(stmt, "SELECT MIN(id) FROM users");
+            stmt.executeUpdate(
+                "INSERT INTO sales (invoice_no, customer_id, user_id, sale_date, subtotal, tax, discount, " +
+                "total_amount, amount_paid, payment_method) " +
+                "WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < " + sales + ") " +
+                "SELECT CONCAT('BENCH', LPAD(n, 8, '0')), NULL, " + userId + ", " +
+                "NOW() - INTERVAL FLOOR(RAND() * " + DAYS + " * 86400) SECOND, " +
+                "0, 0, 0, 0, 0, ELT(1 + FLOOR(RAND() * 3), 'cash', 'card', 'mobile') FROM seq");
+
+            // 1-5 random products per sale, then set the sale totals from its items
+            int minProduct = firstId(stmt, "SELECT MIN(id) FROM products");
+            int maxProduct = firstId(stmt, "SELECT MAX(id) FROM products");
+            stmt.executeUpdate(
+                "INSERT INTO sale_items (sale_id, product_id, quantity, unit_price) " +
+                "SELECT s.id, p.id, 1 + FLOOR(RAND() * 3), p.selling_price " +
+                "FROM sales s " +
+                "JOIN (SELECT 1 AS k UNION ALL SELECT 2 UNION ALL SELECT 3 UNION ALL SELECT 4 UNION ALL SELECT 5) lines " +
+                "  ON lines.k <= 1 + (s.id % 5) " +
+                "JOIN products p ON p.id = " + minProduct + " + ((s.id * 7919 + lines.k * 104729) % " +
+                (maxProduct - minProduct + 1) + ") " +
+                "WHERE s.invoice_no LIKE 'BENCH%' AND s.subtotal = 0");
+            stmt.executeUpdate(
+                "UPDATE sales s JOIN (SELECT sale_id, SUM(quantity * unit_price) AS amount " +
+                "FROM sale_items GROUP BY sale_id) t ON t.sale_id = s.id " +
+                "SET s.subtotal = t.amount, s.total_amount = t.amount, s.amount_paid = t.amount " +
+                "WHERE s.invoice_no LIKE 'BENCH%' AND s.subtotal = 0");
+        }
+
+        System.out.println("Rebuilding sales rollups...");
+        new SalesRollupDAO().rebuild(LocalDate.now().minusDays(DAYS), LocalDate.now());
+        System.out.println("Seeding done.");
+    }
+
+    private static int firstId(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        }
+        throw new SQLException("No rows for: " + sql);
+    }
+
+    /**
+     * Id of a user to ring up sales as
+     */
+    public static int firstUserId() throws SQLException {
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement()) {
+            return firstId(stmt, "SELECT MIN(id) FROM users");
+        }
+    }
+
+    /**
+     * Barcodes of the seeded products (stock large enough for checkout benchmarks)
+     */
+    public static List<String> seededBarcodes() throws SQLException {
+        List<String> barcodes = new ArrayList<>();
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT barcode FROM products WHERE barcode LIKE 'BN%' AND stock_quantity >= 1000");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                barcodes.add(rs.getString(1));
+            }
+        }
+        return barcodes;
+    }
+}
@@ -0,0 +1,94 @@
+package com.pcsale.bench;
+
+import com.pcsale.util.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BenchHarness - Minimal JMH-style runner: warm-up, timed iterations, percentiles
+ *
+ * Each benchmark is called in a loop for a fixed time per iteration. Warm-up
+ * iterations let the JIT, the connection pool and MySQL's buffer pool settle
+ * and are not reported. Every call is timed into a LatencyHistogram, so the
+ * summary shows throughput together with p50 / p99 latency.
+ */
+public class BenchHarness {
+
+    /**
+     * One benchmarked operation
+     */
+    public interface Op {
+        void run() throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int iterations;
+    private final long iterationMillis;
+    private final List<String> rows = new ArrayList<>();
+
+    public BenchHarness(int warmupIterations, int iterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.iterations = iterations;
+        this.iterationMillis = iterationMillis;
+    }
+
+    /**
+     * Run one benchmark and keep its result for the summary
+     */
+    public void run(String name, Op op) throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        System.out.println("# " + name);
+
+        for (int i = 1; i <= warmupIterations; i++) {
+            long ops = iterate(op, histogram);
+            System.out.printf("  warm-up %d: %,.1f ops/s%n", i, ops * 1000.0 / iterationMillis);
+        }
+        histogram.reset();
+
+        long totalOps = 0;
+        long totalNanos = 0;
+        for (int i = 1; i <= iterations; i++) {
+            long start = System.nanoTime();
+            long ops = iterate(op, histogram);
+            long elapsed = System.nanoTime() - start;
+            totalOps += ops;
+            totalNanos += elapsed;
+            System.out.printf("  iteration %d: %,.1f ops/s%n", i, ops * 1e9 / elapsed);
+        }
+
+        double throughput = totalOps * 1e9 / totalNanos;
+        rows.add(String.format("%-28s %12.1f %10.3f %10.3f %10.3f %10d",
+                name, throughput,
+                histogram.getPercentileMillis(50), histogram.getPercentileMillis(99),
+                histogram.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                histogram.getCount()));
+    }
+
+    /**
+     * Print throughput and latency of every benchmark run so far
+     */
+    public void printSummary() {
+        System.out.println();
+        System.out.println(String.format("%-28s %12s %10s %10s %10s %10s",
+                "Benchmark", "ops/s", "p50 ms", "p99 ms", "max ms", "ops"));
+        for (String row : rows) {
+            System.out.println(row);
+        }
+    }
+
+    private long iterate(Op op, LatencyHistogram histogram) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(iterationMillis);
+        long ops = 0;
+        long now;
+        do {
+            long start = System.nanoTime();
+            op.run();
+            now = System.nanoTime();
+            histogram.record(now - start);
+            ops++;
+        } while (now < deadline);
+        return ops;
+    }
+}
@@ -0,0 +1,162 @@
+package com.pcsale.bench;
+
+import com.pcsale.dao.ProductDAO;
+import com.pcsale.dao.SaleDAO;
+import com.pcsale.model.Product;
+import com.pcsale.model.Sale;
+import com.pcsale.model.SaleItem;
+import com.pcsale.util.DatabaseConfig;
+import com.pcsale.util.ReceiptGenerator;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * HotPathBenchmarks - Throughput and latency of the DAO, checkout and reporting hot paths
+ *
+ * Usage (see bench/run-bench.ps1):
+ *   HotPathBenchmarks [--seed copies sales] [--warmup n] [--iterations n] [--time ms] [--only prefix]
+ *
+ * Run it against a scratch database (-Dpcsale.db.url=...): the checkout
+ * benchmarks insert real sales.
+ */
+public class HotPathBenchmarks {
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.10");
+
+    private final ProductDAO productDAO = new ProductDAO();
+    private final SaleDAO saleDAO = new SaleDAO();
+    private final Random random = new Random(42);
+    private final List<Product> products = new ArrayList<>();
+    private int userId;
+
+    public static void main(String[] args) throws Exception {
+        int warmup = 2;
+        int iterations = 5;
+        long time = 2000;
+        String only = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--seed":
+                    BenchData.seed(Integer.parseInt(args[++i]), Integer.parseInt(args[++i]));
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    time = Long.parseLong(args[++i]);
+                    break;
+                case "--only":
+                    only = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        try {
+            new HotPathBenchmarks().runAll(new BenchHarness(warmup, iterations, time), only);
+        } finally {
+            DatabaseConfig.closeConnection();
+        }
+    }
+
+    private void runAll(BenchHarness harness, String only) throws Exception {
+        for (String barcode : BenchData.seededBarcodes()) {
+            products.add(productDAO.getProductByBarcode(barcode));
+            if (products.size() == 500) {
+                break;
+            }
+        }
+        if (products.isEmpty()) {
+            System.err.println("No seeded products found - run once with --seed (e.g. --seed 100 200000)");
+            System.exit(1);
+        }
+        userId = BenchData.firstUserId();
+        Sale receiptSale = newSale(10);
+
+        if (selected("product.byBarcode", only)) {
+            harness.run("product.byBarcode", () -> productDAO.getProductByBarcode(randomProduct().getBarcode()));
+        }
+        if (selected("product.search", only)) {
+            harness.run("product.search", () -> productDAO.searchProducts(randomKeyword()));
+        }
+        for (int items : new int[]{1, 10, 50}) {
+            if (selected("sale.create." + items, only)) {
+                harness.run("sale.create." + items, () -> {
+                    if (!saleDAO.createSale(newSale(items))) {
+                        throw new IllegalStateException("createSale failed");
+                    }
+                });
+            }
+        }
+        if (selected("sale.byDateRange.7d", only)) {
+            harness.run("sale.byDateRange.7d", () ->
+                saleDAO.getSalesByDateRange(LocalDateTime.now().minusDays(7), LocalDateTime.now()));
+        }
+        if (selected("report.daily30", only)) {
+            harness.run("report.daily30", () -> saleDAO.getDailySalesData(30));
+        }
+        if (selected("report.weekly12", only)) {
+            harness.run("report.weekly12", () -> saleDAO.getWeeklySalesData(12));
+        }
+        if (selected("report.monthly12", only)) {
+            harness.run("report.monthly12", () -> saleDAO.getMonthlySalesData(12));
+        }
+        if (selected("report.hourly", only)) {
+            harness.run("report.hourly", saleDAO::getHourlySalesData);
+        }
+        if (selected("receipt.text", only)) {
+            harness.run("receipt.text", () -> ReceiptGenerator.generateTextReceipt(receiptSale));
+        }
+        if (selected("receipt.html", only)) {
+            harness.run("receipt.html", () -> ReceiptGenerator.generateHtmlReceipt(receiptSale));
+        }
+
+        harness.printSummary();
+    }
+
+    private static boolean selected(String name, String only) {
+        return name.startsWith(only);
+    }
+
+    private Product randomProduct() {
+        return products.get(random.nextInt(products.size()));
+    }
+
+    /**
+     * Three letters from a product name, like a cashier starting to type it
+     */
+    private String randomKeyword() {
+        String name = randomProduct().getName();
+        int start = random.nextInt(Math.max(1, name.length() - 3));
+        return name.substring(start, Math.min(name.length(), start + 3));
+    }
+
+    private Sale newSale(int items) {
+        Sale sale = new Sale();
+        sale.setInvoiceNo(saleDAO.generateInvoiceNumber());
+        sale.setUserId(userId);
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < items; i++) {
+            Product product = randomProduct();
+            SaleItem item = new SaleItem(product.getId(), product.getName(), 1, product.getSellingPrice());
+            sale.getItems().add(item);
+            subtotal = subtotal.add(item.getSubtotal());
+        }
+        BigDecimal tax = subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        sale.setSubtotal(subtotal);
+        sale.setTax(tax);
+        sale.setTotalAmount(subtotal.add(tax));
+        sale.setAmountPaid(subtotal.add(tax));
+        return sale;
+    }
+}
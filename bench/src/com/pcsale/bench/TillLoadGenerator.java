@@ -0,0 +1,317 @@
+package com.pcsale.bench;
+
+import com.pcsale.dao.ProductDAO;
+import com.pcsale.dao.SaleDAO;
+import com.pcsale.dao.SaleIngestQueue;
+import com.pcsale.model.Product;
+import com.pcsale.model.Sale;
+import com.pcsale.model.SaleItem;
+import com.pcsale.util.DatabaseConfig;
+import com.pcsale.util.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TillLoadGenerator - Headless load driver that simulates several tills ringing up sales
+ *
+ * Each simulated till is a thread with its own SaleIngestQueue (as every
+ * real till has its own process). A cashier scans a basket item by item at
+ * the configured rate, then commits the sale and starts the next one.
+ * Reports sales per second, a commit latency histogram, lock wait
+ * timeouts, deadlocks and oversell conflicts (insufficient stock).
+ *
+ * Usage (see bench/run-load.ps1):
+ *   TillLoadGenerator [--tills n] [--duration s] [--scan-rate items/s] [--basket-mean n] [--basket-max n]
+ *                     [--payments cash=60,card=30,mobile=10] [--hot-products n] [--hot-stock n] [--hot-share 0.2]
+ *
+ * --scan-rate 0 scans without pauses (maximum load). Hot products get their
+ * stock set to --hot-stock and are picked for --hot-share of the lines, so
+ * tills compete for the same rows and the last units (they keep the low
+ * stock afterwards, so the next run picks other hot products).
+ */
+public class TillLoadGenerator {
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.10");
+    private static final long REPORT_INTERVAL_MS = 5000;
+    private static final long[] HISTOGRAM_BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+    private int tills = 8;
+    private int durationSeconds = 60;
+    private double scanRate = 2.0;
+    private double basketMean = 4;
+    private int basketMax = 50;
+    private final Map<String, Integer> paymentMix = new LinkedHashMap<>();
+    private int hotProductCount = 0;
+    private int hotStock = 50;
+    private double hotShare = 0.2;
+
+    private final SaleDAO saleDAO = new SaleDAO();
+    private final List<Product> products = new ArrayList<>();
+    private final List<Product> hotProducts = new ArrayList<>();
+    private int userId;
+
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder lockWaitTimeouts = new LongAdder();
+    private final LongAdder deadlocks = new LongAdder();
+    private final LongAdder oversells = new LongAdder();
+    private final LongAdder otherErrors = new LongAdder();
+    private volatile boolean running = true;
+
+    public static void main(String[] args) throws Exception {
+        TillLoadGenerator generator = new TillLoadGenerator();
+        generator.parse(args);
+        // Every till needs a connection of its own, like separate till processes
+        if (System.getProperty("pcsale.db.poolSize") == null) {
+            System.setProperty("pcsale.db.poolSize", String.valueOf(generator.tills + 2));
+        }
+        try {
+            generator.run();
+        } finally {
+            DatabaseConfig.closeConnection();
+        }
+    }
+
+    private void parse(String[] args) {
+        String payments = "cash=60,card=30,mobile=10";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--tills":
+                    tills = Integer.parseInt(args[++i]);
+                    break;
+                case "--duration":
+                    durationSeconds = Integer.parseInt(args[++i]);
+                    break;
+                case "--scan-rate":
+                    scanRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--basket-mean":
+                    basketMean = Double.parseDouble(args[++i]);
+                    break;
+                case "--basket-max":
+                    basketMax = Integer.parseInt(args[++i]);
+                    break;
+                case "--payments":
+                    payments = args[++i];
+                    break;
+                case "--hot-products":
+                    hotProductCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--hot-stock":
+                    hotStock = Integer.parseInt(args[++i]);
+                    break;
+                case "--hot-share":
+                    hotShare = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+        for (String part : payments.split(",")) {
+            String[] pair = part.split("=");
+            paymentMix.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+    }
+
+    private void run() throws Exception {
+        ProductDAO productDAO = new ProductDAO();
+        for (String barcode : BenchData.seededBarcodes()) {
+            products.add(productDAO.getProductByBarcode(barcode));
+        }
+        if (products.isEmpty()) {
+            System.err.println("No seeded products found - seed the database first (run-bench --seed)");
+            System.exit(1);
+        }
+        for (int i = 0; i < hotProductCount && i < products.size(); i++) {
+            Product product = products.get(i);
+            productDAO.updateStock(product.getId(), hotStock - product.getStockQuantity());
+            hotProducts.add(product);
+        }
+        userId = BenchData.firstUserId();
+
+        System.out.printf("Simulating %d tills for %d s: %.1f scans/s, basket mean %.1f (max %d), payments %s, " +
+                          "%d hot products%n",
+                tills, durationSeconds, scanRate, basketMean, basketMax, paymentMix, hotProducts.size());
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 1; i <= tills; i++) {
+            Thread till = new Thread(this::cashierLoop, "till-" + i);
+            till.start();
+            threads.add(till);
+        }
+
+        long start = System.currentTimeMillis();
+        long end = start + TimeUnit.SECONDS.toMillis(durationSeconds);
+        long lastCount = 0;
+        while (System.currentTimeMillis() < end) {
+            Thread.sleep(Math.min(REPORT_INTERVAL_MS, Math.max(1, end - System.currentTimeMillis())));
+            long count = committed.sum();
+            System.out.printf("[%4ds] %7.1f sales/s  p50 %7.2f ms  p99 %7.2f ms  conflicts %d  timeouts %d%n",
+                    (System.currentTimeMillis() - start) / 1000,
+                    (count - lastCount) * 1000.0 / REPORT_INTERVAL_MS,
+                    commitLatency.getPercentileMillis(50), commitLatency.getPercentileMillis(99),
+                    oversells.sum(), lockWaitTimeouts.sum());
+            lastCount = count;
+        }
+
+        running = false;
+        for (Thread till : threads) {
+            till.join();
+        }
+        printReport(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * One cashier: scan a basket, take payment, commit, repeat
+     */
+    private void cashierLoop() {
+        SaleIngestQueue queue = new SaleIngestQueue();
+        Random random = ThreadLocalRandom.current();
+        while (running) {
+            Sale sale = newSale(random);
+            if (sale == null) {
+                return; // no invoice number: database unreachable
+            }
+
+            long started = System.nanoTime();
+            try {
+                queue.submit(sale, false).get();
+                commitLatency.record(System.nanoTime() - started);
+                committed.increment();
+            } catch (InterruptedException e) {
+                return;
+            } catch (ExecutionException e) {
+                commitLatency.record(System.nanoTime() - started);
+                classify(e.getCause());
+            }
+        }
+    }
+
+    private Sale newSale(Random random) {
+        String invoiceNo = saleDAO.generateInvoiceNumber();
+        if (invoiceNo == null) {
+            return null;
+        }
+        Sale sale = new Sale();
+        sale.setInvoiceNo(invoiceNo);
+        sale.setUserId(userId);
+        sale.setPaymentMethod(randomPayment(random));
+
+        // Geometric basket size with the configured mean
+        int items = 1;
+        while (items < basketMax && random.nextDouble() > 1.0 / basketMean) {
+            items++;
+        }
+
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < items && running; i++) {
+            if (scanRate > 0) {
+                pause((long) (-Math.log(1 - random.nextDouble()) / scanRate * 1000));
+            }
+            Product product = !hotProducts.isEmpty() && random.nextDouble() < hotShare
+                ? hotProducts.get(random.nextInt(hotProducts.size()))
+                : products.get(random.nextInt(products.size()));
+            SaleItem item = new SaleItem(product.getId(), product.getName(), 1, product.getSellingPrice());
+            sale.getItems().add(item);
+            subtotal = subtotal.add(item.getSubtotal());
+        }
+
+        BigDecimal tax = subtotal.multiply(TAX_RATE).setScale(2, RoundingMode.HALF_UP);
+        sale.setSubtotal(subtotal);
+        sale.setTax(tax);
+        sale.setTotalAmount(subtotal.add(tax));
+        sale.setAmountPaid(subtotal.add(tax));
+        return sale;
+    }
+
+    private String randomPayment(Random random) {
+        int total = 0;
+        for (int weight : paymentMix.values()) {
+            total += weight;
+        }
+        int pick = random.nextInt(Math.max(1, total));
+        for (Map.Entry<String, Integer> entry : paymentMix.entrySet()) {
+            pick -= entry.getValue();
+            if (pick < 0) {
+                return entry.getKey();
+            }
+        }
+        return "cash";
+    }
+
+    private void classify(Throwable error) {
+        if (error instanceof SQLException) {
+            SQLException e = (SQLException) error;
+            if (e.getErrorCode() == 1205) {
+                lockWaitTimeouts.increment();
+                return;
+            }
+            if (e.getErrorCode() == 1213 || e instanceof SQLTransactionRollbackException) {
+                deadlocks.increment();
+                return;
+            }
+            if (e.getMessage() != null && e.getMessage().startsWith("Insufficient stock")) {
+                oversells.increment();
+                return;
+            }
+        }
+        otherErrors.increment();
+        if (otherErrors.sum() <= 5) {
+            error.printStackTrace();
+        }
+    }
+
+    private void printReport(long elapsedMillis) {
+        long sales = committed.sum();
+        System.out.println();
+        System.out.printf("Committed sales:        %d (%.1f sales/s)%n", sales, sales * 1000.0 / elapsedMillis);
+        System.out.printf("Oversell conflicts:     %d%n", oversells.sum());
+        System.out.printf("Lock wait timeouts:     %d%n", lockWaitTimeouts.sum());
+        System.out.printf("Deadlocks:              %d%n", deadlocks.sum());
+        System.out.printf("Other errors:           %d%n", otherErrors.sum());
+        System.out.println();
+        System.out.printf("Commit latency (ms): p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                commitLatency.getPercentileMillis(50), commitLatency.getPercentileMillis(90),
+                commitLatency.getPercentileMillis(99), commitLatency.getPercentileMillis(99.9),
+                commitLatency.getMaxNanos() / 1e6);
+
+        long total = commitLatency.getCount();
+        long previous = 0;
+        for (long bound : HISTOGRAM_BOUNDS_MS) {
+            long atOrBelow = commitLatency.getCountAtOrBelow(TimeUnit.MILLISECONDS.toNanos(bound));
+            printBar("<= " + bound + " ms", atOrBelow - previous, total);
+            previous = atOrBelow;
+        }
+        printBar("> " + HISTOGRAM_BOUNDS_MS[HISTOGRAM_BOUNDS_MS.length - 1] + " ms", total - previous, total);
+    }
+
+    private static void printBar(String label, long count, long total) {
+        int width = total == 0 ? 0 : (int) Math.round(50.0 * count / total);
+        StringBuilder bar = new StringBuilder();
+        for (int i = 0; i < width; i++) {
+            bar.append('#');
+        }
+        System.out.printf("  %-10s %8d  %s%n", label, count, bar);
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -5,3 +5,12 @@ ALTER TABLE products ADD COLUMN IF NOT EXISTS image VARCHAR(255) AFTER unit;
 
 -- If your MySQL version doesn't support ADD COLUMN IF NOT EXISTS, use:
 -- ALTER TABLE products ADD COLUMN image VARCHAR(255) AFTER unit;
+
+-- Number sequences used to allocate invoice numbers and customer codes.
+-- Each till leases a block of numbers at a time, so two tills never
+-- produce the same invoice number. Rows are created automatically on
+-- first use, continuing from the highest existing number.
+CREATE TABLE IF NOT EXISTS number_sequences (
+    name VARCHAR(50) NOT NULL PRIMARY KEY,
+    next_value BIGINT NOT NULL
+);
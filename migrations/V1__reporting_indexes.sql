@@ -0,0 +1,46 @@
+-- V1: Indexes for sales reporting and barcode lookups
+-- Run after the main database structure and db_update.sql.
+-- Migrations are applied in version order; each one records itself in
+-- schema_version so it is easy to see which have been applied.
+-- Every migration is safe to run again: an index is only added when the
+-- table has none with that name (or, where noted, none on that column).
+
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INT NOT NULL PRIMARY KEY,
+    description VARCHAR(200) NOT NULL,
+    applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Date-range reports (today, daily/weekly/monthly charts, sales history).
+-- total_amount is included so SUM/COUNT by date is answered from the index alone;
+-- id comes second so sales history can also page by (sale_date, id) on it (see V3).
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sales'
+                 AND index_name = 'idx_sales_sale_date') = 0,
+              'ALTER TABLE sales ADD INDEX idx_sales_sale_date (sale_date, id, total_amount)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- A customer's purchase history by date
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sales'
+                 AND index_name = 'idx_sales_customer_date') = 0,
+              'ALTER TABLE sales ADD INDEX idx_sales_customer_date (customer_id, sale_date)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Loading the items of a sale.
+-- Skipped if any index (e.g. the one InnoDB creates for a FOREIGN KEY) already starts with sale_id.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sale_items'
+                 AND column_name = 'sale_id' AND seq_in_index = 1) = 0,
+              'ALTER TABLE sale_items ADD INDEX idx_sale_items_sale_id (sale_id)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Scanner lookups (ProductDAO.getProductByBarcode).
+-- Skipped if any index (e.g. a UNIQUE key) already starts with barcode.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'products'
+                 AND column_name = 'barcode' AND seq_in_index = 1) = 0,
+              'ALTER TABLE products ADD INDEX idx_products_barcode (barcode)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+INSERT IGNORE INTO schema_version (version, description) VALUES (1, 'reporting indexes');
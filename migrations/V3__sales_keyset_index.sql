@@ -0,0 +1,27 @@
+-- V3: Index for paging through sales history newest first
+-- SalesHistoryPanel seeks by (sale_date, id). Rather than a second index next
+-- to V1's, idx_sales_sale_date becomes (sale_date, id, total_amount), which
+-- serves both the seek and the date-range SUM/COUNT reports, so each sale
+-- insert maintains one date index instead of two.
+
+-- Reshape V1's index if it was created as (sale_date, total_amount)
+SET @has_index = (SELECT COUNT(*) FROM information_schema.statistics
+                  WHERE table_schema = DATABASE() AND table_name = 'sales'
+                    AND index_name = 'idx_sales_sale_date');
+SET @keyed = (SELECT COUNT(*) FROM information_schema.statistics
+              WHERE table_schema = DATABASE() AND table_name = 'sales'
+                AND index_name = 'idx_sales_sale_date' AND seq_in_index = 2 AND column_name = 'id');
+SET @ddl = IF(@keyed > 0, 'DO 0',
+              IF(@has_index > 0,
+                 'ALTER TABLE sales DROP INDEX idx_sales_sale_date, ADD INDEX idx_sales_sale_date (sale_date, id, total_amount)',
+                 'ALTER TABLE sales ADD INDEX idx_sales_sale_date (sale_date, id, total_amount)'));
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Drop the separate (sale_date, id) index an earlier version of V3 added
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sales'
+                 AND index_name = 'idx_sales_date_id') > 0,
+              'ALTER TABLE sales DROP INDEX idx_sales_date_id', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+INSERT IGNORE INTO schema_version (version, description) VALUES (3, 'sales keyset index');
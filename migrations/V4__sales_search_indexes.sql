@@ -0,0 +1,19 @@
+-- V4: Indexes for the sales history search
+-- Customers and cashiers are matched in their own tables and joined back on
+-- sales.customer_id (idx_sales_customer_date, V1) and sales.user_id (below).
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sales'
+                 AND index_name = 'idx_sales_user_date') = 0,
+              'ALTER TABLE sales ADD INDEX idx_sales_user_date (user_id, sale_date)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+-- Invoice numbers typed from the start ("INV0012...").
+-- Skipped if any index (e.g. a UNIQUE key) already starts with invoice_no.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'sales'
+                 AND column_name = 'invoice_no' AND seq_in_index = 1) = 0,
+              'ALTER TABLE sales ADD INDEX idx_sales_invoice_no (invoice_no)', 'DO 0');
+PREPARE ddl FROM @ddl; EXECUTE ddl; DEALLOCATE PREPARE ddl;
+
+INSERT IGNORE INTO schema_version (version, description) VALUES (4, 'sales search indexes');
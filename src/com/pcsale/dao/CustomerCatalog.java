@@ -0,0 +1,115 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Customer;
+import com.pcsale.util.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CustomerCatalog - In-memory customer cache with a search index
+ *
+ * Lets CustomerPanel search by name, phone or customer code as the user
+ * types without a table scan per keystroke. CustomerDAO keeps it up to
+ * date after its writes.
+ */
+public class CustomerCatalog {
+
+    private static final CustomerCatalog instance = new CustomerCatalog();
+
+    private final Map<Integer, Customer> byId = new HashMap<>();
+    private final SearchIndex<Customer> searchIndex = new SearchIndex<>();
+    private List<Customer> sortedSnapshot = null;
+    private boolean loaded = false;
+
+    private CustomerCatalog() {
+    }
+
+    public static CustomerCatalog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Load the customers on first use
+     */
+    public synchronized void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Replace the cache with a fresh copy of the customers table
+     */
+    public void reload() {
+        List<Customer> customers = new CustomerDAO().getAllCustomers();
+        synchronized (this) {
+            byId.clear();
+            searchIndex.clear();
+            for (Customer customer : customers) {
+                index(customer);
+            }
+            sortedSnapshot = null;
+            loaded = true;
+        }
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * All cached customers ordered by name (same order as CustomerDAO.getAllCustomers)
+     */
+    public synchronized List<Customer> getCustomers() {
+        ensureLoaded();
+        if (sortedSnapshot == null) {
+            List<Customer> customers = new ArrayList<>(byId.values());
+            customers.sort(Comparator.comparing(Customer::getName, String.CASE_INSENSITIVE_ORDER));
+            sortedSnapshot = Collections.unmodifiableList(customers);
+        }
+        return sortedSnapshot;
+    }
+
+    /**
+     * Ranked search by name, phone or customer code (same matches as CustomerDAO.searchCustomers)
+     */
+    public List<Customer> search(String keyword, int limit) {
+        ensureLoaded();
+        return searchIndex.search(keyword, limit);
+    }
+
+    /**
+     * Insert or replace a customer after it was written to the database
+     */
+    public synchronized void put(Customer customer) {
+        if (!loaded || customer == null) {
+            return;
+        }
+        index(customer);
+    }
+
+    /**
+     * Drop a deleted customer
+     */
+    public synchronized void remove(int id) {
+        if (!loaded) {
+            return;
+        }
+        if (byId.remove(id) != null) {
+            sortedSnapshot = null;
+        }
+        searchIndex.remove(id);
+    }
+
+    private void index(Customer customer) {
+        byId.put(customer.getId(), customer);
+        searchIndex.put(customer.getId(), customer,
+                        customer.getName(), customer.getPhone(), customer.getCustomerCode());
+        sortedSnapshot = null;
+    }
+}
@@ -12,6 +12,8 @@ import java.util.List;
  */
 public class CustomerDAO {
     
+    private final SequenceDAO sequenceDAO = new SequenceDAO();
+    
     /**
      * Get all customers
      */
@@ -108,7 +110,7 @@ public class CustomerDAO {
                      "VALUES (?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, customer.getCustomerCode());
             stmt.setString(2, customer.getName());
@@ -117,7 +119,14 @@ public class CustomerDAO {
             stmt.setString(5, customer.getAddress());
             stmt.setInt(6, customer.getPoints());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                ResultSet keys = stmt.getGeneratedKeys();
+                if (keys.next()) {
+                    customer.setId(keys.getInt(1));
+                    refreshCatalog(conn, customer.getId());
+                }
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -142,7 +151,10 @@ public class CustomerDAO {
             stmt.setInt(6, customer.getPoints());
             stmt.setInt(7, customer.getId());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                refreshCatalog(conn, customer.getId());
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -159,7 +171,10 @@ public class CustomerDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                CustomerCatalog.getInstance().remove(id);
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -167,9 +182,33 @@ public class CustomerDAO {
     }
     
     /**
-     * Generate unique customer code
+     * Generate unique customer code from this instance's leased block
+     * @return the code, or null if the database is unavailable
      */
     public String generateCustomerCode() {
+        try {
+            return "CUST" + String.format("%05d", sequenceDAO.nextValue(SequenceDAO.CUSTOMER));
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                return null; // the fallback needs the database too
+            }
+            System.err.println("Customer sequence unavailable, falling back to last customer code");
+            e.printStackTrace();
+        }
+        return generateCustomerCodeFromLastCustomer();
+    }
+    
+    /**
+     * SQLState class 08: the database could not be reached
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+    
+    /**
+     * Legacy numbering (last code + 1), used only if number_sequences is missing
+     */
+    private String generateCustomerCodeFromLastCustomer() {
         String prefix = "CUST";
         String sql = "SELECT customer_code FROM customers ORDER BY id DESC LIMIT 1";
         
@@ -229,6 +268,27 @@ public class CustomerDAO {
         return 0;
     }
     
+    /**
+     * Reload one customer into the search cache after a write, on the
+     * writer's connection (borrowing a second one could exhaust the pool)
+     */
+    private void refreshCatalog(Connection conn, int id) {
+        CustomerCatalog catalog = CustomerCatalog.getInstance();
+        if (!catalog.isLoaded()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM customers WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    catalog.put(extractCustomerFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+    
     /**
      * Extract Customer object from ResultSet
      */
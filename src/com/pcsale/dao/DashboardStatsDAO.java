@@ -0,0 +1,104 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.DashboardStats;
+import com.pcsale.util.DatabaseConfig;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DashboardStatsDAO - Dashboard figures in one query, cached for a few seconds
+ *
+ * The counts and the daily sales come back from a single statement
+ * instead of loading product lists just to call size(). Results are kept
+ * for CACHE_TTL_MILLIS so switching back to the dashboard does not hit the
+ * database again; SaleDAO invalidates the cache after each sale.
+ */
+public class DashboardStatsDAO {
+
+    private static final long CACHE_TTL_MILLIS = 10000;
+
+    // The KPI row is joined to every day so both come back from one statement;
+    // with no sales in the period the single row has a NULL sale_day.
+    private static final String STATS_SQL =
+        "SELECT k.product_count, k.customer_count, k.low_stock_count, " +
+        "d.sale_day, d.count, d.total " +
+        "FROM (SELECT " +
+        "  (SELECT COUNT(*) FROM products) as product_count, " +
+        "  (SELECT COUNT(*) FROM customers) as customer_count, " +
+        "  (SELECT COUNT(*) FROM products " +
+        "   WHERE stock_quantity <= reorder_level AND status = 'active') as low_stock_count) k " +
+        "LEFT JOIN (SELECT sale_day, SUM(sale_count) as count, SUM(total_amount) as total " +
+        "  FROM sales_daily " +
+        "  WHERE sale_day >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
+        "  GROUP BY sale_day) d ON 1 = 1 " +
+        "ORDER BY d.sale_day";
+
+    private static final Object cacheLock = new Object();
+    private static DashboardStats cached = null;
+    private static int cachedDays = -1;
+    private static long cachedAt = 0;
+
+    /**
+     * Get the dashboard figures plus daily sales for the last N days
+     */
+    public DashboardStats getStats(int days) {
+        synchronized (cacheLock) {
+            if (cached != null && cachedDays == days
+                    && System.currentTimeMillis() - cachedAt < CACHE_TTL_MILLIS) {
+                return cached;
+            }
+        }
+
+        DashboardStats stats = loadStats(days);
+        if (stats != null) {
+            synchronized (cacheLock) {
+                cached = stats;
+                cachedDays = days;
+                cachedAt = System.currentTimeMillis();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Drop the cached figures (e.g. after a sale was recorded)
+     */
+    public static void invalidate() {
+        synchronized (cacheLock) {
+            cached = null;
+        }
+    }
+
+    private DashboardStats loadStats(int days) {
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(STATS_SQL)) {
+
+            stmt.setInt(1, days);
+            DashboardStats stats = new DashboardStats();
+            List<Object[]> dailySales = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (first) {
+                        stats.setTotalProducts(rs.getInt("product_count"));
+                        stats.setTotalCustomers(rs.getInt("customer_count"));
+                        stats.setLowStockCount(rs.getInt("low_stock_count"));
+                        first = false;
+                    }
+                    Date day = rs.getDate("sale_day");
+                    if (day != null) {
+                        dailySales.add(new Object[]{day, rs.getInt("count"), rs.getDouble("total")});
+                    }
+                }
+            }
+            stats.setDailySales(dailySales);
+            return stats;
+
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
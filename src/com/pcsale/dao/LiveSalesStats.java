@@ -0,0 +1,257 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Sale;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LiveSalesStats - Running totals for today's sales, kept in memory
+ *
+ * Seeded once from sales_hourly, then every sale committed by this till is
+ * added as it happens, so the dashboard can show today's figures without
+ * a query. Counters are LongAdders (amounts in cents) so recording a sale
+ * never blocks a reader. A new day starts empty at midnight and is seeded
+ * right away. Sales from other tills are picked up every
+ * RECONCILE_INTERVAL_SECONDS by adding the difference to the database
+ * totals to the live counters; the counters are never replaced, so a sale
+ * recorded meanwhile is neither lost nor counted twice.
+ */
+public class LiveSalesStats {
+
+    private static final long RECONCILE_INTERVAL_SECONDS = 60;
+
+    private static final LiveSalesStats instance = new LiveSalesStats();
+
+    private final AtomicReference<Day> today = new AtomicReference<>(new Day(LocalDate.now()));
+    private final SalesRollupDAO rollupDAO = new SalesRollupDAO();
+    private volatile ScheduledExecutorService reconciler = null;
+
+    private LiveSalesStats() {
+    }
+
+    public static LiveSalesStats getInstance() {
+        return instance;
+    }
+
+    /**
+     * Load today's figures on first use and start the background reconcile
+     */
+    public synchronized void ensureSeeded() {
+        if (reconciler != null) {
+            return;
+        }
+        reconcile();
+        reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pcsale-live-stats");
+            t.setDaemon(true);
+            return t;
+        });
+        reconciler.scheduleWithFixedDelay(this::reconcileQuietly,
+                RECONCILE_INTERVAL_SECONDS, RECONCILE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Bring today's counters up to the totals stored in the database.
+     * Skipped (until the next round) if this till records a sale while the query
+     * runs, because that sale may or may not be in the result.
+     */
+    private void reconcile() {
+        Day day = current();
+        long recorded = day.recorded.sum();
+        List<Object[]> rows = rollupDAO.getHourlyTotals(day.date);
+        if (rows == null || day.recorded.sum() != recorded || today.get() != day) {
+            return;
+        }
+
+        long[] hourCounts = new long[24];
+        long[] hourCents = new long[24];
+        Map<String, Long> methodCents = new HashMap<>();
+        for (Object[] row : rows) {
+            int hour = (Integer) row[0];
+            long cents = toCents((BigDecimal) row[3]);
+            hourCounts[hour] += (Integer) row[2];
+            hourCents[hour] += cents;
+            methodCents.merge(Day.method((String) row[1]), cents, Long::sum);
+        }
+        day.adjustTo(hourCounts, hourCents, methodCents);
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Add a committed sale
+     */
+    public void record(Sale sale) {
+        LocalDate date = sale.getSaleDate().toLocalDate();
+        Day day = current();
+        if (!day.date.equals(date)) {
+            return; // sale dated another day; not part of today's figures
+        }
+        day.add(sale.getSaleDate().getHour(), sale.getPaymentMethod(), 1, toCents(sale.getTotalAmount()));
+        day.recorded.increment();
+    }
+
+    /**
+     * Today's figures as of now
+     */
+    public Snapshot getSnapshot() {
+        return current().snapshot();
+    }
+
+    /**
+     * Today's counters, starting (and seeding) a fresh day after midnight
+     */
+    private Day current() {
+        Day day = today.get();
+        LocalDate now = LocalDate.now();
+        while (day.date.isBefore(now)) {
+            if (today.compareAndSet(day, new Day(now)) && reconciler != null) {
+                reconciler.execute(this::reconcileQuietly);
+            }
+            day = today.get();
+        }
+        return day;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * Counters for one calendar day
+     */
+    private static class Day {
+        private final LocalDate date;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder revenueCents = new LongAdder();
+        private final LongAdder[] hourlyCount = new LongAdder[24];
+        private final LongAdder[] hourlyCents = new LongAdder[24];
+        private final Map<String, LongAdder> paymentCents = new ConcurrentHashMap<>();
+        private final LongAdder recorded = new LongAdder(); // sales added by record()
+
+        Day(LocalDate date) {
+            this.date = date;
+            for (int h = 0; h < 24; h++) {
+                hourlyCount[h] = new LongAdder();
+                hourlyCents[h] = new LongAdder();
+            }
+        }
+
+        void add(int hour, String paymentMethod, int sales, long cents) {
+            count.add(sales);
+            revenueCents.add(cents);
+            hourlyCount[hour].add(sales);
+            hourlyCents[hour].add(cents);
+            paymentCents.computeIfAbsent(method(paymentMethod), k -> new LongAdder()).add(cents);
+        }
+
+        /**
+         * Add the difference between the given totals and the current counters
+         */
+        void adjustTo(long[] hourCounts, long[] hourCents, Map<String, Long> methodCents) {
+            for (int h = 0; h < 24; h++) {
+                long countDelta = hourCounts[h] - hourlyCount[h].sum();
+                long centsDelta = hourCents[h] - hourlyCents[h].sum();
+                hourlyCount[h].add(countDelta);
+                hourlyCents[h].add(centsDelta);
+                count.add(countDelta);
+                revenueCents.add(centsDelta);
+            }
+            for (String method : paymentCents.keySet()) {
+                methodCents.putIfAbsent(method, 0L);
+            }
+            for (Map.Entry<String, Long> entry : methodCents.entrySet()) {
+                LongAdder cents = paymentCents.computeIfAbsent(entry.getKey(), k -> new LongAdder());
+                cents.add(entry.getValue() - cents.sum());
+            }
+        }
+
+        static String method(String paymentMethod) {
+            return paymentMethod != null ? paymentMethod : "cash";
+        }
+
+        Snapshot snapshot() {
+            int[] hourCounts = new int[24];
+            double[] hourTotals = new double[24];
+            for (int h = 0; h < 24; h++) {
+                hourCounts[h] = hourlyCount[h].intValue();
+                hourTotals[h] = hourlyCents[h].sum() / 100.0;
+            }
+            Map<String, Double> byPayment = new TreeMap<>();
+            for (Map.Entry<String, LongAdder> entry : paymentCents.entrySet()) {
+                byPayment.put(entry.getKey(), entry.getValue().sum() / 100.0);
+            }
+            return new Snapshot(date, count.intValue(), revenueCents.sum() / 100.0, hourCounts, hourTotals, byPayment);
+        }
+    }
+
+    /**
+     * Point-in-time copy of today's figures
+     */
+    public static class Snapshot {
+        private final LocalDate date;
+        private final int salesCount;
+        private final double salesTotal;
+        private final int[] hourlyCounts;
+        private final double[] hourlyTotals;
+        private final Map<String, Double> paymentTotals;
+
+        Snapshot(LocalDate date, int salesCount, double salesTotal,
+                 int[] hourlyCounts, double[] hourlyTotals, Map<String, Double> paymentTotals) {
+            this.date = date;
+            this.salesCount = salesCount;
+            this.salesTotal = salesTotal;
+            this.hourlyCounts = hourlyCounts;
+            this.hourlyTotals = hourlyTotals;
+            this.paymentTotals = paymentTotals;
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getSalesCount() {
+            return salesCount;
+        }
+
+        public double getSalesTotal() {
+            return salesTotal;
+        }
+
+        /**
+         * Sales per hour of the day (index 0-23)
+         */
+        public int[] getHourlyCounts() {
+            return hourlyCounts.clone();
+        }
+
+        public double[] getHourlyTotals() {
+            return hourlyTotals.clone();
+        }
+
+        /**
+         * Totals by payment method, e.g. "cash" -> 1250.00
+         */
+        public Map<String, Double> getPaymentTotals() {
+            return paymentTotals;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Product;
+import com.pcsale.util.IntMap;
+import com.pcsale.util.SearchIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProductCatalog - In-memory product cache for the POS
+ *
+ * Loads the catalog once and indexes it by id and barcode. ProductDAO and
+ * SaleDAO keep it up to date after their writes, so scanning or adding an
+ * item to the cart does not need a database round-trip. Changes made by
+ * other tills are pulled in periodically using products.updated_at.
+ *
+ * Cached Products are never modified once indexed: a change (including a
+ * stock adjustment) replaces the object, so lists handed to other threads
+ * stay consistent without locking.
+ */
+public class ProductCatalog {
+
+    private static final long REFRESH_INTERVAL_SECONDS = 15;
+
+    private static final ProductCatalog instance = new ProductCatalog();
+
+    private final IntMap<Product> byId = new IntMap<>();
+    private final Map<String, Product> byBarcode = new HashMap<>();
+    private final SearchIndex<Product> searchIndex = new SearchIndex<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Integer> staleIds = new HashSet<>(); // adjusted locally, re-read on the next refresh
+    private List<Product> sortedSnapshot = null;
+    private LocalDateTime watermark = null;
+    private boolean loaded = false;
+    private ScheduledExecutorService refresher = null;
+
+    private ProductCatalog() {
+    }
+
+    public static ProductCatalog getInstance() {
+        return instance;
+    }
+
+    /**
+     * Load the catalog on first use
+     */
+    public synchronized void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    /**
+     * Replace the cache with a fresh copy of the products table
+     */
+    public void reload() {
+        List<Product> products = new ProductDAO().getAllProducts();
+        synchronized (this) {
+            byId.clear();
+            byBarcode.clear();
+            searchIndex.clear();
+            watermark = null;
+            staleIds.clear();
+            for (Product product : products) {
+                index(product);
+            }
+            sortedSnapshot = null;
+            loaded = true;
+        }
+    }
+
+    /**
+     * Pull only the products changed since the last sync (plus those adjusted locally
+     * since), then drop deleted ones. Deletions are detected by comparing row counts, so the id list is only
+     * fetched when something was actually removed.
+     * @return true if the cache changed
+     */
+    public boolean refreshChanges() {
+        if (!isLoaded()) {
+            reload();
+            return true;
+        }
+
+        ProductDAO productDAO = new ProductDAO();
+        LocalDateTime since;
+        List<Integer> adjusted;
+        synchronized (this) {
+            since = watermark;
+            adjusted = new ArrayList<>(staleIds);
+            staleIds.clear();
+        }
+
+        // Every returned row is applied: updated_at has one-second precision, so a
+        // second change within the same second carries an equal timestamp
+        List<Product> changed = new ArrayList<>(productDAO.getProductsChangedSince(since));
+        List<Product> reread = productDAO.getProductsByIds(adjusted);
+        if (reread != null) {
+            changed.addAll(reread);
+        }
+        boolean modified = false;
+        synchronized (this) {
+            if (reread == null) {
+                staleIds.addAll(adjusted); // try again next time
+            }
+            for (Product product : changed) {
+                if (!sameListing(byId.get(product.getId()), product)) {
+                    modified = true;
+                }
+                put(product);
+            }
+        }
+
+        int count = productDAO.getProductCount();
+        if (count >= 0 && count != size()) {
+            Set<Integer> ids = productDAO.getAllProductIds();
+            if (ids != null) {
+                synchronized (this) {
+                    for (int id : byId.keys()) {
+                        if (!ids.contains(id)) {
+                            remove(id);
+                            modified = true;
+                        }
+                    }
+                }
+            }
+        }
+        return modified;
+    }
+
+    /**
+     * Register a callback run (on the refresh thread) whenever a timed refresh changes the cache.
+     * Starts the refresh timer on first use.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+        startAutoRefresh();
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private synchronized void startAutoRefresh() {
+        if (refresher != null) {
+            return;
+        }
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pcsale-catalog-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                if (!listeners.isEmpty() && refreshChanges()) {
+                    for (Runnable listener : listeners) {
+                        listener.run();
+                    }
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, REFRESH_INTERVAL_SECONDS, REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * All cached products ordered by name (same order as ProductDAO.getAllProducts)
+     */
+    public synchronized List<Product> getProducts() {
+        ensureLoaded();
+        if (sortedSnapshot == null) {
+            List<Product> products = byId.values();
+            products.sort(Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER));
+            sortedSnapshot = Collections.unmodifiableList(products);
+        }
+        return sortedSnapshot;
+    }
+
+    public synchronized Product getById(int id) {
+        ensureLoaded();
+        return byId.get(id);
+    }
+
+    public synchronized Product getByBarcode(String barcode) {
+        ensureLoaded();
+        return barcode == null ? null : byBarcode.get(barcode);
+    }
+
+    /**
+     * Ranked search over active products by name or barcode (same matches as ProductDAO.searchProducts)
+     */
+    public List<Product> search(String keyword, int limit) {
+        ensureLoaded();
+        return searchIndex.search(keyword, limit);
+    }
+
+    public synchronized int size() {
+        ensureLoaded();
+        return byId.size();
+    }
+
+    /**
+     * Insert or replace a product after it was written to the database
+     */
+    public synchronized void put(Product product) {
+        if (!loaded || product == null) {
+            return;
+        }
+        remove(product.getId());
+        index(product);
+    }
+
+    /**
+     * Drop a deleted product
+     */
+    public synchronized void remove(int id) {
+        if (!loaded) {
+            return;
+        }
+        Product old = byId.remove(id);
+        searchIndex.remove(id);
+        if (old != null) {
+            if (old.getBarcode() != null) {
+                byBarcode.remove(old.getBarcode(), old);
+            }
+            sortedSnapshot = null;
+        }
+    }
+
+    /**
+     * Apply a stock change that was already committed (e.g. a sale's decrement).
+     * A refresh running at the same time may already have read the new stock, so
+     * the product is also re-read from the database on the next refresh.
+     */
+    public synchronized void adjustStock(int id, int delta) {
+        if (!loaded) {
+            return;
+        }
+        Product old = byId.get(id);
+        if (old == null) {
+            return;
+        }
+        staleIds.add(id);
+        Product product = new Product(old);
+        product.setStockQuantity(old.getStockQuantity() + delta);
+        byId.put(id, product);
+        if (product.getBarcode() != null) {
+            byBarcode.replace(product.getBarcode(), old, product);
+        }
+        searchIndex.replaceValue(id, product);
+        if (sortedSnapshot != null) {
+            // Same name, same position: swap it in a copy instead of re-sorting
+            List<Product> products = new ArrayList<>(sortedSnapshot);
+            int at = products.indexOf(old);
+            if (at >= 0) {
+                products.set(at, product);
+                sortedSnapshot = Collections.unmodifiableList(products);
+            } else {
+                sortedSnapshot = null;
+            }
+        }
+    }
+
+    /**
+     * Whether the POS and product lists would show a product the same way
+     */
+    private static boolean sameListing(Product cached, Product fresh) {
+        return cached != null
+            && cached.getStockQuantity() == fresh.getStockQuantity()
+            && Objects.equals(cached.getUpdatedAt(), fresh.getUpdatedAt())
+            && Objects.equals(cached.getName(), fresh.getName())
+            && Objects.equals(cached.getBarcode(), fresh.getBarcode())
+            && Objects.equals(cached.getStatus(), fresh.getStatus())
+            && Objects.equals(cached.getSellingPrice(), fresh.getSellingPrice());
+    }
+
+    private void index(Product product) {
+        byId.put(product.getId(), product);
+        if (product.getBarcode() != null) {
+            byBarcode.put(product.getBarcode(), product);
+        }
+        if ("active".equals(product.getStatus())) {
+            searchIndex.put(product.getId(), product, product.getName(), product.getBarcode());
+        }
+        LocalDateTime updatedAt = product.getUpdatedAt();
+        if (updatedAt != null && (watermark == null || updatedAt.isAfter(watermark))) {
+            watermark = updatedAt;
+        }
+        sortedSnapshot = null;
+    }
+}
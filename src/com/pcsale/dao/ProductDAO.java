@@ -4,23 +4,31 @@ import com.pcsale.model.Product;
 import com.pcsale.util.DatabaseConfig;
 
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * ProductDAO - Data Access Object for Product operations
  */
 public class ProductDAO {
     
+    // Common product SELECT with category and supplier names
+    private static final String PRODUCT_SELECT =
+        "SELECT p.*, c.name as category_name, s.name as supplier_name " +
+        "FROM products p " +
+        "LEFT JOIN categories c ON p.category_id = c.id " +
+        "LEFT JOIN suppliers s ON p.supplier_id = s.id ";
+    
     /**
      * Get all products
      */
     public List<Product> getAllProducts() {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name, s.name as supplier_name " +
-                     "FROM products p " +
-                     "LEFT JOIN categories c ON p.category_id = c.id " +
-                     "LEFT JOIN suppliers s ON p.supplier_id = s.id " +
+        String sql = PRODUCT_SELECT +
                      "ORDER BY p.name";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -40,10 +48,7 @@ public class ProductDAO {
      * Get product by ID
      */
     public Product getProductById(int id) {
-        String sql = "SELECT p.*, c.name as category_name, s.name as supplier_name " +
-                     "FROM products p " +
-                     "LEFT JOIN categories c ON p.category_id = c.id " +
-                     "LEFT JOIN suppliers s ON p.supplier_id = s.id " +
+        String sql = PRODUCT_SELECT +
                      "WHERE p.id = ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -65,10 +70,7 @@ public class ProductDAO {
      * Get product by barcode
      */
     public Product getProductByBarcode(String barcode) {
-        String sql = "SELECT p.*, c.name as category_name, s.name as supplier_name " +
-                     "FROM products p " +
-                     "LEFT JOIN categories c ON p.category_id = c.id " +
-                     "LEFT JOIN suppliers s ON p.supplier_id = s.id " +
+        String sql = PRODUCT_SELECT +
                      "WHERE p.barcode = ? AND p.status = 'active'";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -91,10 +93,7 @@ public class ProductDAO {
      */
     public List<Product> searchProducts(String keyword) {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name, s.name as supplier_name " +
-                     "FROM products p " +
-                     "LEFT JOIN categories c ON p.category_id = c.id " +
-                     "LEFT JOIN suppliers s ON p.supplier_id = s.id " +
+        String sql = PRODUCT_SELECT +
                      "WHERE (p.name LIKE ? OR p.barcode LIKE ?) AND p.status = 'active' " +
                      "ORDER BY p.name LIMIT 50";
         
@@ -120,10 +119,7 @@ public class ProductDAO {
      */
     public List<Product> getLowStockProducts() {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT p.*, c.name as category_name, s.name as supplier_name " +
-                     "FROM products p " +
-                     "LEFT JOIN categories c ON p.category_id = c.id " +
-                     "LEFT JOIN suppliers s ON p.supplier_id = s.id " +
+        String sql = PRODUCT_SELECT +
                      "WHERE p.stock_quantity <= p.reorder_level AND p.status = 'active' " +
                      "ORDER BY p.stock_quantity";
         
@@ -140,6 +136,106 @@ public class ProductDAO {
         return products;
     }
     
+    /**
+     * Get products inserted or updated at or after the given time (all products if null)
+     */
+    public List<Product> getProductsChangedSince(LocalDateTime since) {
+        List<Product> products = new ArrayList<>();
+        String sql = PRODUCT_SELECT +
+                     (since != null ? "WHERE p.updated_at >= ? " : "") +
+                     "ORDER BY p.updated_at";
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            if (since != null) {
+                stmt.setTimestamp(1, Timestamp.valueOf(since));
+            }
+            
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                products.add(extractProductFromResultSet(rs));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return products;
+    }
+    
+    /**
+     * Get total number of products (used to detect deletions cheaply)
+     */
+    public int getProductCount() {
+        String sql = "SELECT COUNT(*) as count FROM products";
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            if (rs.next()) {
+                return rs.getInt("count");
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return -1;
+    }
+    
+    /**
+     * Get some products by id (re-reading cache entries that were adjusted locally)
+     * @return the products found, or null on error
+     */
+    public List<Product> getProductsByIds(Collection<Integer> ids) {
+        List<Product> products = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return products;
+        }
+        StringBuilder sql = new StringBuilder(PRODUCT_SELECT + "WHERE p.id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            int index = 1;
+            for (int id : ids) {
+                stmt.setInt(index++, id);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(extractProductFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return products;
+    }
+    
+    /**
+     * Get the ids of all products
+     */
+    public Set<Integer> getAllProductIds() {
+        Set<Integer> ids = new HashSet<>();
+        String sql = "SELECT id FROM products";
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            
+            while (rs.next()) {
+                ids.add(rs.getInt("id"));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return ids;
+    }
+    
     /**
      * Add new product
      */
@@ -149,7 +245,7 @@ public class ProductDAO {
                      "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
         try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             stmt.setString(1, product.getBarcode());
             stmt.setString(2, product.getName());
@@ -163,7 +259,14 @@ public class ProductDAO {
             stmt.setString(10, product.getImage());
             stmt.setString(11, product.getStatus());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                ResultSet keys = stmt.getGeneratedKeys();
+                if (keys.next()) {
+                    product.setId(keys.getInt(1));
+                    refreshCatalog(conn, product.getId());
+                }
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -194,7 +297,10 @@ public class ProductDAO {
             stmt.setString(11, product.getStatus());
             stmt.setInt(12, product.getId());
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                refreshCatalog(conn, product.getId());
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -213,7 +319,10 @@ public class ProductDAO {
             stmt.setInt(1, quantity);
             stmt.setInt(2, productId);
             
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                ProductCatalog.getInstance().adjustStock(productId, quantity);
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -230,7 +339,10 @@ public class ProductDAO {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             stmt.setInt(1, id);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                ProductCatalog.getInstance().remove(id);
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -259,6 +371,27 @@ public class ProductDAO {
         return false;
     }
     
+    /**
+     * Reload one product into the POS catalog cache after a write, on the
+     * writer's connection (borrowing a second one could exhaust the pool)
+     */
+    private void refreshCatalog(Connection conn, int id) {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (!catalog.isLoaded()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(PRODUCT_SELECT + "WHERE p.id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    catalog.put(extractProductFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+    
     /**
      * Extract Product object from ResultSet
      */
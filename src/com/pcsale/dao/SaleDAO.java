@@ -5,30 +5,98 @@ import com.pcsale.model.SaleItem;
 import com.pcsale.util.DatabaseConfig;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * SaleDAO - Data Access Object for Sale operations
  */
 public class SaleDAO {
     
+    // Start of every invoice number
+    public static final String INVOICE_PREFIX = "INV";
+    
+    // Ids per IN (...) list for the bulk item queries
+    private static final int MAX_IN_LIST = 500;
+    
+    // Rows per stock UPDATE: carts are padded up to one of these sizes (and split above
+    // the largest), so only a few statements take slots in each connection's statement cache
+    private static final int[] STOCK_UPDATE_ROWS = {1, 4, 16, 64};
+    private static final String[] STOCK_UPDATE_SQL = stockUpdateSql();
+    
+    // SQLState of the insufficient-stock error, so the ingest queue can tell it from other failures
+    static final String INSUFFICIENT_STOCK = "45000";
+    
+    // Payment methods offered at the till, matched exactly by the sales search
+    private static final Set<String> PAYMENT_METHODS =
+        new HashSet<>(Arrays.asList("cash", "card", "mobile", "credit"));
+    
+    // Half-open range on the raw column so an index on sale_date can be used
+    // (DATE(sale_date) = CURDATE() forces a scan of every sale)
+    private static final String TODAY_RANGE = "sale_date >= CURDATE() AND sale_date < CURDATE() + INTERVAL 1 DAY ";
+    
+    private final SequenceDAO sequenceDAO = new SequenceDAO();
+    private final SalesRollupDAO rollupDAO = new SalesRollupDAO();
+    
     /**
-     * Create a new sale with items (transaction)
+     * Create a new sale with items (committed with the next SaleIngestQueue group)
      */
     public boolean createSale(Sale sale) {
-        Connection conn = null;
         try {
-            conn = DatabaseConfig.getConnection();
-            conn.setAutoCommit(false); // Start transaction
-            
-            // Insert sale
-            String saleSql = "INSERT INTO sales (invoice_no, customer_id, user_id, sale_date, subtotal, " +
-                           "tax, discount, total_amount, amount_paid, payment_method, notes) " +
-                           "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement saleStmt = conn.prepareStatement(saleSql, Statement.RETURN_GENERATED_KEYS);
+            return SaleIngestQueue.getInstance().submit(sale, false).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Queue a new sale without waiting for it (for callers on the EDT)
+     * @return completes with true once committed, false or exceptionally if it failed
+     */
+    public CompletableFuture<Boolean> createSaleAsync(Sale sale) {
+        return SaleIngestQueue.getInstance().submit(sale, false);
+    }
+    
+    /**
+     * Whether a sale with this invoice number is already saved (locks the invoice for the transaction)
+     */
+    boolean isRecorded(Connection conn, String invoiceNo) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT id FROM sales WHERE invoice_no = ? FOR UPDATE")) {
+            stmt.setString(1, invoiceNo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+    
+    /**
+     * Insert the sale and its items in the caller's transaction (applySales then takes
+     * the stock and adds the rollups for the whole group)
+     */
+    void insertSale(Connection conn, Sale sale) throws SQLException {
+        String saleSql = "INSERT INTO sales (invoice_no, customer_id, user_id, sale_date, subtotal, " +
+                       "tax, discount, total_amount, amount_paid, payment_method, notes) " +
+                       "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        int saleId = 0;
+        try (PreparedStatement saleStmt = conn.prepareStatement(saleSql, Statement.RETURN_GENERATED_KEYS)) {
             saleStmt.setString(1, sale.getInvoiceNo());
             setIntegerOrNull(saleStmt, 2, sale.getCustomerId());
             saleStmt.setInt(3, sale.getUserId());
@@ -44,56 +112,118 @@ public class SaleDAO {
             saleStmt.executeUpdate();
             
             // Get generated sale ID
-            ResultSet rs = saleStmt.getGeneratedKeys();
-            int saleId = 0;
-            if (rs.next()) {
-                saleId = rs.getInt(1);
+            try (ResultSet rs = saleStmt.getGeneratedKeys()) {
+                if (rs.next()) {
+                    saleId = rs.getInt(1);
+                }
             }
-            
-            // Insert sale items
-            String itemSql = "INSERT INTO sale_items (sale_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
-            PreparedStatement itemStmt = conn.prepareStatement(itemSql);
-            
+        }
+        
+        // Insert sale items
+        String itemSql = "INSERT INTO sale_items (sale_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement itemStmt = conn.prepareStatement(itemSql)) {
             for (SaleItem item : sale.getItems()) {
                 itemStmt.setInt(1, saleId);
                 itemStmt.setInt(2, item.getProductId());
                 itemStmt.setInt(3, item.getQuantity());
                 itemStmt.setBigDecimal(4, item.getUnitPrice());
                 itemStmt.addBatch();
-                
-                // Update product stock
-                String stockSql = "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ?";
-                PreparedStatement stockStmt = conn.prepareStatement(stockSql);
-                stockStmt.setInt(1, item.getQuantity());
-                stockStmt.setInt(2, item.getProductId());
-                stockStmt.executeUpdate();
-                stockStmt.close();
             }
-            
             itemStmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Take the stock and add the rollups for sales inserted in the caller's transaction.
+     * Stock rows are updated in product id order and rollup rows in key order, so groups
+     * from different tills lock the shared rows in the same order.
+     * Throws (SQLState INSUFFICIENT_STOCK) if any product runs short, so the caller rolls back.
+     */
+    void applySales(Connection conn, List<Sale> sales) throws SQLException {
+        List<SaleItem> items = new ArrayList<>();
+        for (Sale sale : sales) {
+            items.addAll(sale.getItems());
+        }
+        decrementStock(conn, items);
+        
+        // Last, so the shared rollup rows stay locked briefly
+        rollupDAO.recordSales(conn, sales);
+    }
+    
+    /**
+     * Bring the in-memory caches in step with a committed sale
+     */
+    void afterCommit(Sale sale) {
+        // Keep the POS catalog cache in step with the committed stock
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        for (SaleItem item : sale.getItems()) {
+            catalog.adjustStock(item.getProductId(), -item.getQuantity());
+        }
+        // The stock is taken now, so the checkout's holds can go
+        StockReservations.getInstance().releaseAll(sale.getInvoiceNo());
+        LiveSalesStats.getInstance().record(sale);
+        DashboardStatsDAO.invalidate();
+    }
+    
+    /**
+     * Decrement stock for every product in the items with set-based UPDATEs, in product id order.
+     * Throws if any product does not have enough stock, so the caller rolls back.
+     */
+    private void decrementStock(Connection conn, List<SaleItem> items) throws SQLException {
+        // Merge duplicate lines so each product is checked against its total quantity
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        for (SaleItem item : items) {
+            if (item.getQuantity() > 0) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        if (quantities.isEmpty()) {
+            return;
+        }
+        
+        List<Map.Entry<Integer, Integer>> lines = new ArrayList<>(quantities.entrySet());
+        int maxRows = STOCK_UPDATE_ROWS[STOCK_UPDATE_ROWS.length - 1];
+        int updated = 0;
+        for (int from = 0; from < lines.size(); from += maxRows) {
+            List<Map.Entry<Integer, Integer>> chunk = lines.subList(from, Math.min(lines.size(), from + maxRows));
+            int rows = 0;
+            while (STOCK_UPDATE_ROWS[rows] < chunk.size()) {
+                rows++;
+            }
             
-            conn.commit(); // Commit transaction
-            return true;
-            
-        } catch (SQLException e) {
-            if (conn != null) {
-                try {
-                    conn.rollback(); // Rollback on error
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
+            try (PreparedStatement stmt = conn.prepareStatement(STOCK_UPDATE_SQL[rows])) {
+                int index = 1;
+                for (Map.Entry<Integer, Integer> entry : chunk) {
+                    stmt.setInt(index++, entry.getKey());
+                    stmt.setInt(index++, entry.getValue());
                 }
-            }
-            e.printStackTrace();
-        } finally {
-            if (conn != null) {
-                try {
-                    conn.setAutoCommit(true);
-                } catch (SQLException e) {
-                    e.printStackTrace();
+                // Padding rows have a NULL id, which matches no product
+                for (int i = chunk.size(); i < STOCK_UPDATE_ROWS[rows]; i++) {
+                    stmt.setNull(index++, Types.INTEGER);
+                    stmt.setInt(index++, 0);
                 }
+                updated += stmt.executeUpdate();
             }
         }
-        return false;
+        if (updated != quantities.size()) {
+            throw new SQLException("Insufficient stock for " + (quantities.size() - updated) +
+                                   " of " + quantities.size() + " products in sale", INSUFFICIENT_STOCK);
+        }
+    }
+    
+    private static String[] stockUpdateSql() {
+        String[] sql = new String[STOCK_UPDATE_ROWS.length];
+        for (int n = 0; n < sql.length; n++) {
+            StringBuilder text = new StringBuilder("UPDATE products p JOIN (");
+            for (int i = 0; i < STOCK_UPDATE_ROWS[n]; i++) {
+                text.append(i == 0 ? "SELECT ? AS id, ? AS qty" : " UNION ALL SELECT ?, ?");
+            }
+            text.append(") d ON p.id = d.id " +
+                        "SET p.stock_quantity = p.stock_quantity - d.qty " +
+                        "WHERE p.stock_quantity >= d.qty");
+            sql[n] = text.toString();
+        }
+        return sql;
     }
     
     /**
@@ -114,7 +244,7 @@ public class SaleDAO {
             
             if (rs.next()) {
                 Sale sale = extractSaleFromResultSet(rs);
-                sale.setItems(getSaleItems(id));
+                sale.setItems(getSaleItems(conn, id));
                 return sale;
             }
         } catch (SQLException e) {
@@ -141,7 +271,7 @@ public class SaleDAO {
             
             if (rs.next()) {
                 Sale sale = extractSaleFromResultSet(rs);
-                sale.setItems(getSaleItems(sale.getId()));
+                sale.setItems(getSaleItems(conn, sale.getId()));
                 return sale;
             }
         } catch (SQLException e) {
@@ -158,7 +288,7 @@ public class SaleDAO {
     }
     
     /**
-     * Get sales by date range
+     * Get sales by date range (both ends inclusive)
      */
     public List<Sale> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
         List<Sale> sales = new ArrayList<>();
@@ -169,7 +299,7 @@ public class SaleDAO {
             "JOIN users u ON s.user_id = u.id ");
         
         if (startDate != null && endDate != null) {
-            sql.append("WHERE s.sale_date BETWEEN ? AND ? ");
+            sql.append("WHERE s.sale_date >= ? AND s.sale_date <= ? ");
         }
         sql.append("ORDER BY s.sale_date DESC");
         
@@ -191,36 +321,373 @@ public class SaleDAO {
         return sales;
     }
     
+    /**
+     * Get one page of sales, newest first, using keyset pagination on (sale_date, id).
+     * afterDate/afterId are the last sale of the previous page (null for the first page).
+     * Only sales with id <= maxId are returned, so paging is not shifted by new sales.
+     */
+    public List<Sale> getSalesPage(LocalDateTime startDate, LocalDateTime endDate, String keyword,
+                                   long maxId, LocalDateTime afterDate, int afterId, int limit) {
+        return querySalesPage(startDate, endDate, keyword, maxId, afterDate, afterId, 0, limit);
+    }
+    
+    /**
+     * Get one page of sales by position, for jumping to a page whose predecessor was never loaded
+     */
+    public List<Sale> getSalesPageAt(LocalDateTime startDate, LocalDateTime endDate, String keyword,
+                                     long maxId, int offset, int limit) {
+        return querySalesPage(startDate, endDate, keyword, maxId, null, 0, offset, limit);
+    }
+    
+    private List<Sale> querySalesPage(LocalDateTime startDate, LocalDateTime endDate, String keyword,
+                                      long maxId, LocalDateTime afterDate, int afterId, int offset, int limit) {
+        List<Sale> sales = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(
+            "SELECT s.*, c.name as customer_name, u.full_name as user_name " +
+            "FROM sales s " +
+            "LEFT JOIN customers c ON s.customer_id = c.id " +
+            "JOIN users u ON s.user_id = u.id " +
+            "WHERE s.id <= ? ");
+        params.add(maxId);
+        appendSalesFilter(sql, params, startDate, endDate, keyword);
+        
+        if (afterDate != null) {
+            sql.append("AND (s.sale_date < ? OR (s.sale_date = ? AND s.id < ?)) ");
+            params.add(Timestamp.valueOf(afterDate));
+            params.add(Timestamp.valueOf(afterDate));
+            params.add(afterId);
+        }
+        sql.append("ORDER BY s.sale_date DESC, s.id DESC LIMIT ?");
+        params.add(limit);
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+            params.add(offset);
+        }
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            setParameters(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(extractSaleFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return sales;
+    }
+    
+    /**
+     * Get the number of sales, their total and the highest sale id for a period / search.
+     * The period includes both ends, like getSalesByDateRange.
+     * Without a keyword whole days are summed from sales_daily, so the cost does not grow
+     * with history; only the partial first and last day are read from the sales table.
+     * @return {count (Integer), total (Double), max id (Long)}, or null on error
+     */
+    public Object[] getSalesSummary(LocalDateTime startDate, LocalDateTime endDate, String keyword) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder();
+        
+        if (keyword != null && !keyword.isEmpty()) {
+            sql.append("SELECT COUNT(*) as count, COALESCE(SUM(s.total_amount), 0) as total, " +
+                       "COALESCE(MAX(s.id), 0) as max_id " +
+                       "FROM sales s " +
+                       "WHERE 1 = 1 ");
+            appendSalesFilter(sql, params, startDate, endDate, keyword);
+        } else if (startDate == null || endDate == null) {
+            sql.append("SELECT COALESCE(SUM(sale_count), 0) as count, COALESCE(SUM(total_amount), 0) as total, " +
+                       "(SELECT COALESCE(MAX(id), 0) FROM sales) as max_id " +
+                       "FROM sales_daily");
+        } else {
+            // Whole days from the rollup, the partial days at either end from sales
+            LocalDate firstFullDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+            LocalDate endDay = endDate.toLocalDate();
+            
+            sql.append("SELECT COALESCE(SUM(cnt), 0) as count, COALESCE(SUM(amount), 0) as total, " +
+                       "(SELECT COALESCE(MAX(id), 0) FROM sales) as max_id FROM (");
+            if (firstFullDay.isBefore(endDay)) {
+                sql.append("SELECT SUM(sale_count) as cnt, SUM(total_amount) as amount FROM sales_daily " +
+                           "WHERE sale_day >= ? AND sale_day < ? " +
+                           "UNION ALL " +
+                           "SELECT COUNT(*), SUM(total_amount) FROM sales " +
+                           "WHERE (sale_date >= ? AND sale_date < ?) OR (sale_date >= ? AND sale_date <= ?)");
+                params.add(Date.valueOf(firstFullDay));
+                params.add(Date.valueOf(endDay));
+                params.add(Timestamp.valueOf(startDate));
+                params.add(Timestamp.valueOf(firstFullDay.atStartOfDay()));
+                params.add(Timestamp.valueOf(endDay.atStartOfDay()));
+                params.add(Timestamp.valueOf(endDate));
+            } else {
+                sql.append("SELECT COUNT(*) as cnt, SUM(total_amount) as amount FROM sales " +
+                           "WHERE sale_date >= ? AND sale_date <= ?");
+                params.add(Timestamp.valueOf(startDate));
+                params.add(Timestamp.valueOf(endDate));
+            }
+            sql.append(") parts");
+        }
+        
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            
+            setParameters(stmt, params);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return new Object[]{
+                        rs.getInt("count"),
+                        rs.getDouble("total"),
+                        rs.getLong("max_id")
+                    };
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+    
+    /**
+     * Append the period and search conditions shared by the paging and summary queries
+     */
+    private void appendSalesFilter(StringBuilder sql, List<Object> params,
+                                   LocalDateTime startDate, LocalDateTime endDate, String keyword) {
+        if (startDate != null && endDate != null) {
+            sql.append("AND s.sale_date >= ? AND s.sale_date <= ? ");
+            params.add(Timestamp.valueOf(startDate));
+            params.add(Timestamp.valueOf(endDate));
+        }
+        if (keyword != null && !keyword.isEmpty()) {
+            // Each way of matching is its own index lookup (invoice_no, customer_id / user_id
+            // via the name tables, sale_date), unioned into the set of matching ids; an OR of
+            // leading-wildcard LIKEs would read every sale on each keystroke.
+            String prefix = escapeLike(keyword) + "%";
+            sql.append("AND s.id IN (SELECT id FROM (" +
+                       "SELECT id FROM sales WHERE invoice_no LIKE ? ");
+            params.add(prefix);
+            appendBranchPeriod(sql, params, "sale_date", startDate, endDate);
+            sql.append("UNION SELECT sc.id FROM customers c JOIN sales sc ON sc.customer_id = c.id " +
+                       "WHERE c.name LIKE ? ");
+            params.add(prefix);
+            appendBranchPeriod(sql, params, "sc.sale_date", startDate, endDate);
+            sql.append("UNION SELECT su.id FROM users u JOIN sales su ON su.user_id = u.id " +
+                       "WHERE u.full_name LIKE ? ");
+            params.add(prefix);
+            appendBranchPeriod(sql, params, "su.sale_date", startDate, endDate);
+            String method = keyword.trim().toLowerCase();
+            if (isPaymentMethod(method)) {
+                sql.append("UNION SELECT id FROM sales WHERE payment_method = ? ");
+                params.add(method);
+                appendBranchPeriod(sql, params, "sale_date", startDate, endDate);
+            }
+            sql.append(") matches) ");
+        }
+    }
+    
+    /**
+     * Whether a search keyword names a payment method (matched exactly, ignoring case)
+     */
+    public static boolean isPaymentMethod(String keyword) {
+        return PAYMENT_METHODS.contains(keyword.trim().toLowerCase());
+    }
+    
+    /**
+     * Repeat the period inside a search branch so its index range is bounded by date too
+     */
+    private void appendBranchPeriod(StringBuilder sql, List<Object> params, String column,
+                                    LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate != null && endDate != null) {
+            sql.append("AND ").append(column).append(" >= ? AND ").append(column).append(" <= ? ");
+            params.add(Timestamp.valueOf(startDate));
+            params.add(Timestamp.valueOf(endDate));
+        }
+    }
+    
+    /**
+     * Escape LIKE wildcards typed by the user so they match literally
+     */
+    private static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
+    private void setParameters(PreparedStatement stmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            stmt.setObject(i + 1, params.get(i));
+        }
+    }
+    
+    /**
+     * Get the number of item lines of each sale in one grouped query
+     * @return sale id -> item count (sales without items are absent)
+     */
+    public Map<Integer, Integer> getItemCounts(Collection<Integer> saleIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (List<Integer> chunk : chunk(saleIds)) {
+            String sql = "SELECT sale_id, COUNT(*) as item_count FROM sale_items " +
+                         "WHERE sale_id IN (" + placeholders(chunk.size()) + ") " +
+                         "GROUP BY sale_id";
+            
+            try (Connection conn = DatabaseConfig.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                setParameters(stmt, new ArrayList<>(chunk));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(rs.getInt("sale_id"), rs.getInt("item_count"));
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+        return counts;
+    }
+    
+    /**
+     * Get the items of many sales in one query (instead of getSaleItems per sale)
+     * @return sale id -> items; every requested id is present, possibly with an empty list
+     */
+    public Map<Integer, List<SaleItem>> getSaleItemsBySaleIds(Collection<Integer> saleIds) {
+        Map<Integer, List<SaleItem>> itemsBySale = new LinkedHashMap<>();
+        for (Integer saleId : saleIds) {
+            itemsBySale.put(saleId, new ArrayList<>());
+        }
+        
+        for (List<Integer> chunk : chunk(saleIds)) {
+            String sql = "SELECT si.*, p.name as product_name, p.barcode " +
+                         "FROM sale_items si " +
+                         "JOIN products p ON si.product_id = p.id " +
+                         "WHERE si.sale_id IN (" + placeholders(chunk.size()) + ") " +
+                         "ORDER BY si.sale_id, si.id";
+            
+            try (Connection conn = DatabaseConfig.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                
+                setParameters(stmt, new ArrayList<>(chunk));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        SaleItem item = extractSaleItemFromResultSet(rs);
+                        itemsBySale.get(item.getSaleId()).add(item);
+                    }
+                }
+            } catch (SQLException e) {
+                e.printStackTrace();
+                return null;
+            }
+        }
+        return itemsBySale;
+    }
+    
+    /**
+     * Split ids into IN-list sized chunks
+     */
+    private List<List<Integer>> chunk(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> current = new ArrayList<>();
+        for (Integer id : ids) {
+            current.add(id);
+            if (current.size() == MAX_IN_LIST) {
+                chunks.add(current);
+                current = new ArrayList<>();
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+    
+    private String placeholders(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ", ?");
+        }
+        return sb.toString();
+    }
+    
     /**
      * Get sale items for a sale
      */
     public List<SaleItem> getSaleItems(int saleId) {
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            return getSaleItems(conn, saleId);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+    
+    /**
+     * Get sale items on a connection the caller already holds, so a lookup
+     * never borrows a second pooled connection while keeping the first
+     */
+    private List<SaleItem> getSaleItems(Connection conn, int saleId) throws SQLException {
         List<SaleItem> items = new ArrayList<>();
         String sql = "SELECT si.*, p.name as product_name, p.barcode " +
                      "FROM sale_items si " +
                      "JOIN products p ON si.product_id = p.id " +
                      "WHERE si.sale_id = ?";
         
-        try (Connection conn = DatabaseConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, saleId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
                 items.add(extractSaleItemFromResultSet(rs));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return items;
     }
     
     /**
-     * Generate unique invoice number
+     * Generate unique invoice number from this till's leased block
+     * @return the invoice number, or null if none could be allocated
      */
     public String generateInvoiceNumber() {
-        String prefix = "INV";
+        try {
+            return INVOICE_PREFIX + String.format("%06d", sequenceDAO.nextValue(SequenceDAO.INVOICE));
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                return null; // the fallback needs the database too
+            }
+            System.err.println("Invoice sequence unavailable, falling back to last invoice number");
+            e.printStackTrace();
+        }
+        return generateInvoiceNumberFromLastSale();
+    }
+    
+    /**
+     * Take an invoice number from this till's leased block without waiting on the database
+     * @return the invoice number, or null if no block is leased yet (use generateInvoiceNumber
+     *         off the EDT)
+     */
+    public String takeLeasedInvoiceNumber() {
+        long value = sequenceDAO.tryNextValue(SequenceDAO.INVOICE);
+        return value < 0 ? null : INVOICE_PREFIX + String.format("%06d", value);
+    }
+    
+    /**
+     * Lease invoice numbers in the background so the first checkout does not wait for them
+     */
+    public void prefetchInvoiceNumbers() {
+        sequenceDAO.prefetch(SequenceDAO.INVOICE);
+    }
+    
+    /**
+     * SQLState class 08: the database could not be reached
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+    
+    /**
+     * Legacy numbering (last invoice + 1), used only if number_sequences is missing
+     */
+    private String generateInvoiceNumberFromLastSale() {
+        String prefix = INVOICE_PREFIX;
         String sql = "SELECT invoice_no FROM sales ORDER BY id DESC LIMIT 1";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -234,6 +701,7 @@ public class SaleDAO {
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            return null; // a guessed number could repeat an existing invoice
         }
         return prefix + "000001";
     }
@@ -243,7 +711,7 @@ public class SaleDAO {
      */
     public double getTodaySalesTotal() {
         String sql = "SELECT COALESCE(SUM(total_amount), 0) as total FROM sales " +
-                     "WHERE DATE(sale_date) = CURDATE()";
+                     "WHERE " + TODAY_RANGE;
         
         try (Connection conn = DatabaseConfig.getConnection();
              Statement stmt = conn.createStatement();
@@ -259,10 +727,10 @@ public class SaleDAO {
     }
     
     /**
-     * Get sales count for a period
+     * Get sales count for a period (both ends inclusive)
      */
     public int getSalesCount(LocalDateTime startDate, LocalDateTime endDate) {
-        String sql = "SELECT COUNT(*) as count FROM sales WHERE sale_date BETWEEN ? AND ?";
+        String sql = "SELECT COUNT(*) as count FROM sales WHERE sale_date >= ? AND sale_date <= ?";
         
         try (Connection conn = DatabaseConfig.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -323,10 +791,10 @@ public class SaleDAO {
      */
     public List<Object[]> getDailySalesData(int days) {
         List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT DATE(sale_date) as sale_day, COUNT(*) as count, SUM(total_amount) as total " +
-                     "FROM sales " +
-                     "WHERE sale_date >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
-                     "GROUP BY DATE(sale_date) " +
+        String sql = "SELECT sale_day, SUM(sale_count) as count, SUM(total_amount) as total " +
+                     "FROM sales_daily " +
+                     "WHERE sale_day >= DATE_SUB(CURDATE(), INTERVAL ? DAY) " +
+                     "GROUP BY sale_day " +
                      "ORDER BY sale_day";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -354,13 +822,13 @@ public class SaleDAO {
      */
     public List<Object[]> getWeeklySalesData(int weeks) {
         List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT YEARWEEK(sale_date) as sale_week, " +
-                     "MIN(DATE(sale_date)) as week_start, " +
-                     "COUNT(*) as count, " +
+        String sql = "SELECT YEARWEEK(sale_day) as sale_week, " +
+                     "MIN(sale_day) as week_start, " +
+                     "SUM(sale_count) as count, " +
                      "SUM(total_amount) as total " +
-                     "FROM sales " +
-                     "WHERE sale_date >= DATE_SUB(CURDATE(), INTERVAL ? WEEK) " +
-                     "GROUP BY YEARWEEK(sale_date) " +
+                     "FROM sales_daily " +
+                     "WHERE sale_day >= DATE_SUB(CURDATE(), INTERVAL ? WEEK) " +
+                     "GROUP BY YEARWEEK(sale_day) " +
                      "ORDER BY sale_week";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -388,13 +856,13 @@ public class SaleDAO {
      */
     public List<Object[]> getMonthlySalesData(int months) {
         List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT DATE_FORMAT(sale_date, '%Y-%m') as sale_month, " +
-                     "MIN(DATE(sale_date)) as month_start, " +
-                     "COUNT(*) as count, " +
+        String sql = "SELECT DATE_FORMAT(sale_day, '%Y-%m') as sale_month, " +
+                     "MIN(sale_day) as month_start, " +
+                     "SUM(sale_count) as count, " +
                      "SUM(total_amount) as total " +
-                     "FROM sales " +
-                     "WHERE sale_date >= DATE_SUB(CURDATE(), INTERVAL ? MONTH) " +
-                     "GROUP BY DATE_FORMAT(sale_date, '%Y-%m') " +
+                     "FROM sales_daily " +
+                     "WHERE sale_day >= DATE_SUB(CURDATE(), INTERVAL ? MONTH) " +
+                     "GROUP BY DATE_FORMAT(sale_day, '%Y-%m') " +
                      "ORDER BY sale_month";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -422,10 +890,10 @@ public class SaleDAO {
      */
     public List<Object[]> getHourlySalesData() {
         List<Object[]> data = new ArrayList<>();
-        String sql = "SELECT HOUR(sale_date) as sale_hour, COUNT(*) as count, SUM(total_amount) as total " +
-                     "FROM sales " +
-                     "WHERE DATE(sale_date) = CURDATE() " +
-                     "GROUP BY HOUR(sale_date) " +
+        String sql = "SELECT HOUR(sale_hour) as sale_hour, SUM(sale_count) as count, SUM(total_amount) as total " +
+                     "FROM sales_hourly " +
+                     "WHERE sale_hour >= CURDATE() AND sale_hour < CURDATE() + INTERVAL 1 DAY " +
+                     "GROUP BY HOUR(sale_hour) " +
                      "ORDER BY sale_hour";
         
         try (Connection conn = DatabaseConfig.getConnection();
@@ -0,0 +1,289 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Sale;
+import com.pcsale.util.DatabaseConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SaleIngestQueue - Saves sales in small groups with one commit per group
+ *
+ * Sales submitted from any thread are written by a single writer thread.
+ * After the first sale arrives it waits up to MAX_WAIT_MS for more (or until
+ * MAX_GROUP_SIZE are waiting) and writes them all in one transaction, so
+ * the group pays for one commit instead of one per sale. Every sale row gets
+ * its own savepoint: a sale that fails to insert is rolled back on its own
+ * and the rest of the group still commits. The stock and rollup rows the
+ * tills share are then updated once for the whole group, in key order, so
+ * groups never lock them in opposite orders. A group that loses a deadlock
+ * or lock wait is retried with backoff, and a group that conflicts every
+ * time or runs short of stock is written one sale per transaction, so only
+ * the sale at fault fails. Each
+ * submit returns a future that completes once its sale is committed or has
+ * failed.
+ */
+public class SaleIngestQueue {
+
+    private static final int MAX_GROUP_SIZE = 32;
+    private static final long MAX_WAIT_MS = 5;
+    private static final int GROUP_ATTEMPTS = 3;
+    private static final long RETRY_BASE_MS = 20;
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    private static final int ER_LOCK_DEADLOCK = 1213;
+
+    private static final SaleIngestQueue instance = new SaleIngestQueue();
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final SaleDAO saleDAO = new SaleDAO();
+    private Thread writer;
+
+    /**
+     * A separate queue with its own writer thread (e.g. one per simulated till);
+     * the application itself shares getInstance()
+     */
+    public SaleIngestQueue() {
+    }
+
+    public static SaleIngestQueue getInstance() {
+        return instance;
+    }
+
+    /**
+     * Queue a sale for the next group commit
+     * @param skipIfRecorded leave the sale alone if its invoice number is already saved (journal replay)
+     * @return completes with true when the sale is committed, false if it was skipped as already
+     *         recorded, or exceptionally with the SQLException that stopped it
+     */
+    public CompletableFuture<Boolean> submit(Sale sale, boolean skipIfRecorded) {
+        ensureStarted();
+        Pending pending = new Pending(sale, skipIfRecorded);
+        queue.add(pending);
+        return pending.future;
+    }
+
+    private synchronized void ensureStarted() {
+        if (writer == null) {
+            writer = new Thread(this::writeLoop, "pcsale-sale-ingest");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            List<Pending> group = new ArrayList<>(MAX_GROUP_SIZE);
+            try {
+                group.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_WAIT_MS);
+                while (group.size() < MAX_GROUP_SIZE) {
+                    Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                writeGroup(group);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                for (Pending pending : group) {
+                    pending.future.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write a group in one transaction, retrying it if it loses a deadlock or
+     * lock wait, then falling back to one transaction per sale
+     */
+    private void writeGroup(List<Pending> group) {
+        SQLException conflict = null;
+        for (int attempt = 1; attempt <= GROUP_ATTEMPTS; attempt++) {
+            try {
+                commit(group);
+                return;
+            } catch (SQLException e) {
+                if (isShortfall(e) && group.size() > 1) {
+                    // Some sale in the group is short of stock; find out which one
+                    writeEach(group, e);
+                    return;
+                }
+                if (!isConflict(e)) {
+                    e.printStackTrace();
+                    failAll(group, e);
+                    return;
+                }
+                conflict = e;
+                if (attempt < GROUP_ATTEMPTS) {
+                    backoff(attempt);
+                }
+            }
+        }
+        if (group.size() == 1) {
+            conflict.printStackTrace();
+            failAll(group, conflict);
+            return;
+        }
+
+        // Still conflicting: write the sales one by one so only a sale that keeps losing fails
+        writeEach(group, conflict);
+    }
+
+    /**
+     * Write each sale of a group that failed as a whole in its own transaction
+     */
+    private void writeEach(List<Pending> group, SQLException reason) {
+        System.err.println("Sale group of " + group.size() + " failed, saving sales one at a time: " +
+                           reason.getMessage());
+        for (Pending pending : group) {
+            List<Pending> single = Collections.singletonList(pending);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    commit(single);
+                    break;
+                } catch (SQLException e) {
+                    if (!isConflict(e) || attempt >= GROUP_ATTEMPTS) {
+                        e.printStackTrace();
+                        failAll(single, e);
+                        break;
+                    }
+                    backoff(attempt);
+                }
+            }
+        }
+    }
+
+    /**
+     * One transaction for the sales, each behind its own savepoint; completes
+     * their futures once it has committed
+     * @throws SQLException if the whole transaction failed (nothing is completed then)
+     */
+    private void commit(List<Pending> group) throws SQLException {
+        Connection conn = DatabaseConfig.getConnection();
+        if (conn == null) {
+            throw new SQLException("Database unavailable", "08001");
+        }
+
+        List<Pending> written = new ArrayList<>(group.size());
+        List<Pending> failed = new ArrayList<>();
+        try {
+            conn.setAutoCommit(false);
+            for (Pending pending : group) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    if (pending.skipIfRecorded && saleDAO.isRecorded(conn, pending.sale.getInvoiceNo())) {
+                        pending.inserted = false;
+                    } else {
+                        saleDAO.insertSale(conn, pending.sale);
+                        pending.inserted = true;
+                    }
+                    written.add(pending);
+                } catch (SQLException e) {
+                    if (isConflict(e)) {
+                        throw e; // deadlock or lock wait: retry the whole transaction
+                    }
+                    conn.rollback(savepoint);
+                    pending.error = e;
+                    failed.add(pending);
+                }
+            }
+
+            List<Sale> inserted = new ArrayList<>(written.size());
+            for (Pending pending : written) {
+                if (pending.inserted) {
+                    inserted.add(pending.sale);
+                }
+            }
+            if (!inserted.isEmpty()) {
+                saleDAO.applySales(conn, inserted);
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                ex.printStackTrace();
+            }
+            throw e;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        for (Pending pending : written) {
+            if (pending.inserted) {
+                saleDAO.afterCommit(pending.sale);
+            }
+            pending.future.complete(pending.inserted);
+        }
+        for (Pending pending : failed) {
+            pending.future.completeExceptionally(pending.error);
+        }
+    }
+
+    /**
+     * Deadlock (1213) or lock wait timeout (1205): the sales themselves are fine, try again
+     */
+    private static boolean isConflict(SQLException e) {
+        return e instanceof SQLTransactionRollbackException
+            || e.getErrorCode() == ER_LOCK_DEADLOCK || e.getErrorCode() == ER_LOCK_WAIT_TIMEOUT;
+    }
+
+    /**
+     * A product ran short for the group's combined quantities (SaleDAO.applySales)
+     */
+    private static boolean isShortfall(SQLException e) {
+        return SaleDAO.INSUFFICIENT_STOCK.equals(e.getSQLState());
+    }
+
+    private static void backoff(int attempt) {
+        long delay = RETRY_BASE_MS << (attempt - 1);
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void failAll(List<Pending> group, SQLException e) {
+        for (Pending pending : group) {
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A sale waiting for its group, and its outcome
+     */
+    private static class Pending {
+        private final Sale sale;
+        private final boolean skipIfRecorded;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private boolean inserted;
+        private SQLException error;
+
+        Pending(Sale sale, boolean skipIfRecorded) {
+            this.sale = sale;
+            this.skipIfRecorded = skipIfRecorded;
+        }
+    }
+}
@@ -0,0 +1,784 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Sale;
+import com.pcsale.model.SaleItem;
+import com.pcsale.util.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * SaleJournal - Local write-behind log of completed sales
+ *
+ * Checkout appends the sale to journal/sales.journal and forces it to disk;
+ * once that returns the sale is safe even if MySQL is slow or down. A
+ * background replayer applies the records to the database in order through
+ * SaleIngestQueue, skipping invoices that are already recorded, so a
+ * record replayed twice after a crash is harmless. journal/sales.checkpoint
+ * holds the offset of the first record not yet applied.
+ *
+ * Record format: magic (int), payload length (int), payload, CRC32 of the
+ * payload (int). A torn record at the end of the file (crash mid-write,
+ * fewer bytes left than the record declares) is cut off when the journal
+ * is opened. Damage anywhere else is never silently dropped: the file is
+ * copied aside to sales.journal.corrupt-<time>, the intact records around
+ * the damage are kept, and getRecoveryWarning() says what happened.
+ *
+ * A record the database keeps rejecting (e.g. not enough stock) is moved
+ * to journal/sales.rejected after MAX_ATTEMPTS so it does not hold up the
+ * sales behind it. Those sales were already paid for, so reject listeners
+ * are told and getRejectedCount() includes rejects from earlier runs until
+ * someone deals with the file.
+ */
+public class SaleJournal {
+
+    private static final int RECORD_MAGIC = 0x50435331; // "PCS1"
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int REPLAY_BATCH = 32;
+    private static final long RETRY_DELAY_MS = 5_000;
+    // Once every record is applied the journal is emptied if it has grown past this
+    private static final long COMPACT_THRESHOLD = 1 << 20;
+
+    private static final SaleJournal instance = new SaleJournal();
+
+    private final SaleIngestQueue ingestQueue = SaleIngestQueue.getInstance();
+    private final Object lock = new Object();
+    private final List<IntConsumer> backlogListeners = new CopyOnWriteArrayList<>();
+    private final List<IntConsumer> rejectListeners = new CopyOnWriteArrayList<>();
+
+    private File directory = new File("journal");
+    private FileChannel journal;
+    private FileChannel checkpoint;
+    private FileChannel lockFile;   // holds the exclusive lock on the journal directory
+    private long writeOffset = 0;   // end of the last complete record
+    private long appliedOffset = 0; // start of the first record not yet applied
+    private int backlog = 0;
+    private int rejected = 0;
+    private String recoveryWarning = null;
+    private Thread replayer;
+
+    private SaleJournal() {
+    }
+
+    public static SaleJournal getInstance() {
+        return instance;
+    }
+
+    /**
+     * Open the journal, recover it after a crash and start replaying (call once at startup)
+     * @return false if the journal could not be opened; sales are then written directly
+     */
+    public boolean start() {
+        synchronized (lock) {
+            if (journal != null) {
+                return true;
+            }
+            try {
+                open();
+            } catch (IOException e) {
+                System.err.println("Sale journal unavailable, sales will be saved directly");
+                e.printStackTrace();
+                return false;
+            }
+        }
+
+        replayer = new Thread(this::replayLoop, "pcsale-journal-replayer");
+        replayer.setDaemon(true);
+        replayer.start();
+        Metrics.getInstance().gauge("journal.backlog", this::getBacklog);
+        fireBacklogChanged();
+        return true;
+    }
+
+    /**
+     * Use another directory for the journal files (before start)
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Append a completed sale and force it to disk
+     * @return true once the sale is durable locally, false if it was not written
+     */
+    public boolean append(Sale sale) {
+        byte[] record;
+        try {
+            record = encode(sale);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace(); // not journaled; the caller saves it directly
+            return false;
+        }
+
+        synchronized (lock) {
+            if (journal == null) {
+                return false;
+            }
+            try {
+                writeFully(journal, ByteBuffer.wrap(record), writeOffset);
+                journal.force(true);
+            } catch (IOException e) {
+                e.printStackTrace();
+                try {
+                    journal.truncate(writeOffset); // drop the partial record
+                } catch (IOException ex) {
+                    ex.printStackTrace();
+                }
+                return false;
+            }
+            writeOffset += record.length;
+            backlog++;
+            lock.notifyAll();
+        }
+        fireBacklogChanged();
+        return true;
+    }
+
+    /**
+     * Number of journaled sales not yet applied to the database
+     */
+    public int getBacklog() {
+        synchronized (lock) {
+            return backlog;
+        }
+    }
+
+    /**
+     * Number of sales in sales.rejected (paid for, but refused by the database)
+     */
+    public int getRejectedCount() {
+        synchronized (lock) {
+            return rejected;
+        }
+    }
+
+    /**
+     * What was done about a damaged journal when it was opened, or null if it was intact
+     */
+    public String getRecoveryWarning() {
+        synchronized (lock) {
+            return recoveryWarning;
+        }
+    }
+
+    /**
+     * Listen for backlog changes; called on the journal's threads with the new backlog
+     */
+    public void addBacklogListener(IntConsumer listener) {
+        backlogListeners.add(listener);
+    }
+
+    public void removeBacklogListener(IntConsumer listener) {
+        backlogListeners.remove(listener);
+    }
+
+    /**
+     * Listen for sales moved to sales.rejected (or a damaged record skipped, see
+     * getRecoveryWarning()); called on the replayer thread with the rejected count
+     */
+    public void addRejectListener(IntConsumer listener) {
+        rejectListeners.add(listener);
+    }
+
+    public void removeRejectListener(IntConsumer listener) {
+        rejectListeners.remove(listener);
+    }
+
+    private File journalFile() {
+        return new File(directory, "sales.journal");
+    }
+
+    /**
+     * Take an exclusive lock for this process, so a second POS started in the same
+     * directory does not append to the journal at its own offsets. Kept in its own
+     * file because salvage() closes and replaces the journal channel.
+     */
+    private void lockDirectory() throws IOException {
+        if (lockFile != null) {
+            return;
+        }
+        FileChannel channel = FileChannel.open(new File(directory, "sales.lock").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock fileLock;
+        try {
+            fileLock = channel.tryLock();
+        } catch (IOException | OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            channel.close();
+            throw new IOException("Sale journal " + directory.getAbsolutePath() +
+                                  " is in use by another POS instance");
+        }
+        lockFile = channel;
+    }
+
+    private void open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory.getAbsolutePath());
+        }
+        lockDirectory();
+        journal = FileChannel.open(journalFile().toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpoint = FileChannel.open(new File(directory, "sales.checkpoint").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long size = journal.size();
+        ByteBuffer saved = ByteBuffer.allocate(8);
+        long start = 0;
+        if (checkpoint.read(saved, 0) == 8) {
+            saved.flip();
+            start = saved.getLong();
+        }
+        if (start < 0 || start > size) {
+            start = 0; // replaying from the beginning is safe, records are idempotent
+        }
+
+        // Count the pending records; only a torn record at the very end may be cut off
+        long offset = start;
+        int pending = 0;
+        while (offset < size) {
+            int length = readRecordLength(offset, size);
+            if (length < 0) {
+                if (isTornTail(offset, size) && findNextRecord(offset + 1, size) < 0) {
+                    System.err.println("Sale journal: discarding " + (size - offset) +
+                                       " bytes of incomplete record at offset " + offset);
+                    journal.truncate(offset);
+                    journal.force(true);
+                } else {
+                    start = salvage(start, size);
+                    offset = 0;
+                    pending = countRecords(0, journal.size());
+                }
+                break;
+            }
+            offset += HEADER_SIZE + length + 4;
+            pending++;
+        }
+
+        appliedOffset = start;
+        writeOffset = journal.size();
+        backlog = pending;
+        rejected = countRejected();
+        if (pending > 0) {
+            System.out.println("Sale journal: " + pending + " sales waiting to be saved to the database");
+        }
+    }
+
+    /**
+     * The bytes at offset are the start of a record whose write never finished
+     */
+    private boolean isTornTail(long offset, long size) throws IOException {
+        if (size - offset < HEADER_SIZE) {
+            return true;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        header.flip();
+        if (header.getInt() != RECORD_MAGIC) {
+            return false;
+        }
+        int length = header.getInt();
+        return length > 0 && length <= MAX_RECORD_SIZE && size - offset < HEADER_SIZE + length + 4;
+    }
+
+    /**
+     * Offset of the first intact record at or after 'from', or -1
+     */
+    private long findNextRecord(long from, long size) throws IOException {
+        for (long offset = from; offset + HEADER_SIZE + 4 <= size; offset++) {
+            if (readRecordLength(offset, size) > 0) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rewrite a journal that is damaged in the middle with only its intact
+     * pending records, after copying the damaged file aside
+     * @return the new applied offset (0)
+     */
+    private long salvage(long start, long size) throws IOException {
+        File copy = copyAside();
+
+        List<byte[]> intact = new ArrayList<>();
+        long damagedBytes = 0;
+        long offset = start;
+        while (offset < size) {
+            int length = readRecordLength(offset, size);
+            if (length > 0) {
+                intact.add(readPayload(offset));
+                offset += HEADER_SIZE + length + 4;
+                continue;
+            }
+            long next = findNextRecord(offset + 1, size);
+            long skipTo = next < 0 ? size : next;
+            damagedBytes += skipTo - offset;
+            offset = skipTo;
+        }
+
+        File rebuilt = new File(directory, "sales.journal.tmp");
+        try (FileChannel out = FileChannel.open(rebuilt.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (byte[] payload : intact) {
+                ByteBuffer record = frame(payload);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(true);
+        }
+        // Checkpoint 0 before the swap: a crash in between only replays records, which is harmless
+        writeCheckpoint(0);
+        journal.close();
+        Files.move(rebuilt.toPath(), journalFile().toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        journal = FileChannel.open(journalFile().toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        recoveryWarning = "The sale journal was damaged (" + damagedBytes + " unreadable bytes). " +
+                          intact.size() + " pending sales were recovered. The damaged file was kept as " +
+                          copy.getAbsolutePath() + " - have it checked for sales that could not be recovered.";
+        System.err.println("Sale journal: " + recoveryWarning);
+        return 0;
+    }
+
+    /**
+     * Durable copy of the journal as it is now, for someone to inspect
+     */
+    private File copyAside() throws IOException {
+        File copy = new File(directory, "sales.journal.corrupt-" + System.currentTimeMillis());
+        try (FileChannel out = FileChannel.open(copy.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long size = journal.size();
+            long position = 0;
+            while (position < size) {
+                position += journal.transferTo(position, size - position, out);
+            }
+            out.force(true);
+        }
+        return copy;
+    }
+
+    private int countRecords(long offset, long size) throws IOException {
+        int count = 0;
+        while (offset < size) {
+            int length = readRecordLength(offset, size);
+            if (length < 0) {
+                break;
+            }
+            offset += HEADER_SIZE + length + 4;
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Records already in sales.rejected, so a restart does not hide them
+     */
+    private int countRejected() {
+        File file = new File(directory, "sales.rejected");
+        if (!file.isFile()) {
+            return 0;
+        }
+        int count = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (in.readInt() == RECORD_MAGIC) {
+                int length = in.readInt();
+                if (length <= 0 || in.skipBytes(length + 4) < length + 4) {
+                    break;
+                }
+                count++;
+            }
+        } catch (IOException e) {
+            // end of file
+        }
+        return count;
+    }
+
+    private void replayLoop() {
+        int attempts = 0;
+        int readFailures = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            // Read a run of pending records and hand them to the ingest queue together,
+            // so a backlog is saved in group commits rather than one transaction per sale
+            List<byte[]> payloads = new ArrayList<>();
+            List<Long> ends = new ArrayList<>();
+            try {
+                long offset;
+                long end;
+                synchronized (lock) {
+                    while (appliedOffset >= writeOffset) {
+                        lock.wait();
+                    }
+                    offset = appliedOffset;
+                    end = writeOffset;
+                }
+                while (offset < end && payloads.size() < REPLAY_BATCH) {
+                    byte[] payload = readPayload(offset);
+                    offset += HEADER_SIZE + payload.length + 4;
+                    payloads.add(payload);
+                    ends.add(offset);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                e.printStackTrace();
+                if (payloads.isEmpty()) {
+                    // The next record cannot be read (damaged since startup); don't spin on it forever
+                    if (++readFailures >= MAX_ATTEMPTS) {
+                        readFailures = 0;
+                        skipDamaged();
+                    } else {
+                        sleep(RETRY_DELAY_MS);
+                    }
+                    continue;
+                }
+            }
+            readFailures = 0;
+
+            List<CompletableFuture<Boolean>> results = new ArrayList<>(payloads.size());
+            for (byte[] payload : payloads) {
+                try {
+                    results.add(ingestQueue.submit(decode(payload), true));
+                } catch (IOException | RuntimeException e) {
+                    CompletableFuture<Boolean> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(new IOException("Unreadable sale record", e));
+                    results.add(failed);
+                }
+            }
+
+            // Advance in journal order, stopping at the first sale that has to be retried;
+            // sales after it that did commit are skipped as already recorded next time
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                    attempts = 0;
+                    advance(ends.get(i));
+                } catch (InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (isTransient(cause)) {
+                        sleep(RETRY_DELAY_MS); // database down; keep the record and retry
+                        break;
+                    }
+                    cause.printStackTrace();
+                    // A record that cannot be decoded will never succeed, so reject it straight away
+                    if (!(cause instanceof IOException) && ++attempts < MAX_ATTEMPTS) {
+                        sleep(RETRY_DELAY_MS);
+                        break;
+                    }
+                    attempts = 0;
+                    reject(payloads.get(i));
+                    advance(ends.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Step over an unreadable record: keep a copy of the journal and go on
+     * with the next intact record
+     */
+    private void skipDamaged() {
+        String warning;
+        try {
+            long next;
+            synchronized (lock) {
+                File copy = copyAside();
+                long found = findNextRecord(appliedOffset + 1, writeOffset);
+                next = found < 0 ? writeOffset : found;
+                // The replayer is the only reader, so the records after 'next' are counted again
+                backlog = countRecords(next, writeOffset) + 1;
+                warning = "Skipped " + (next - appliedOffset) + " unreadable bytes of the sale journal; " +
+                          "the journal was kept as " + copy.getAbsolutePath();
+            }
+            System.err.println("Sale journal: " + warning);
+            advance(next);
+        } catch (IOException e) {
+            e.printStackTrace();
+            sleep(RETRY_DELAY_MS);
+            return;
+        }
+        int count;
+        synchronized (lock) {
+            recoveryWarning = warning;
+            count = rejected;
+        }
+        fireRejected(count); // listeners also check getRecoveryWarning()
+    }
+
+    /**
+     * Mark everything before 'next' as applied
+     */
+    private void advance(long next) {
+        try {
+            // Only this thread writes the checkpoint, so checkout is not held up by its fsync
+            writeCheckpoint(next);
+        } catch (IOException e) {
+            e.printStackTrace(); // the record is replayed again after a restart, which is harmless
+        }
+        synchronized (lock) {
+            appliedOffset = next;
+            backlog--;
+            try {
+                if (appliedOffset == writeOffset && writeOffset >= COMPACT_THRESHOLD) {
+                    // Checkpoint first: a crash before the truncate only replays applied records
+                    writeCheckpoint(0);
+                    journal.truncate(0);
+                    journal.force(true);
+                    appliedOffset = 0;
+                    writeOffset = 0;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        fireBacklogChanged();
+    }
+
+    private void writeCheckpoint(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        buffer.putLong(offset).flip();
+        writeFully(checkpoint, buffer, 0);
+        checkpoint.force(true);
+    }
+
+    /**
+     * Keep a record the database will not accept, for someone to look at
+     */
+    private void reject(byte[] payload) {
+        System.err.println("Sale journal: moving a sale the database keeps rejecting to sales.rejected");
+        try (FileChannel out = FileChannel.open(new File(directory, "sales.rejected").toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer record = frame(payload);
+            while (record.hasRemaining()) {
+                out.write(record);
+            }
+            out.force(true);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        int count;
+        synchronized (lock) {
+            count = ++rejected;
+        }
+        fireRejected(count);
+    }
+
+    /**
+     * Length of the payload of the record at offset, or -1 if it is incomplete or corrupt
+     */
+    private int readRecordLength(long offset, long size) throws IOException {
+        if (size - offset < HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        header.flip();
+        int length = header.getInt() == RECORD_MAGIC ? header.getInt() : -1;
+        if (length <= 0 || length > MAX_RECORD_SIZE || size - offset < HEADER_SIZE + length + 4) {
+            return -1;
+        }
+        try {
+            readPayload(offset);
+        } catch (IOException e) {
+            return -1;
+        }
+        return length;
+    }
+
+    private byte[] readPayload(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(header, offset);
+        header.flip();
+        header.getInt();
+        int length = header.getInt();
+
+        ByteBuffer body = ByteBuffer.allocate(length + 4);
+        readFully(body, offset + HEADER_SIZE);
+        body.flip();
+        byte[] payload = new byte[length];
+        body.get(payload);
+        if (body.getInt() != crc(payload)) {
+            throw new IOException("Checksum mismatch in sale journal at offset " + offset);
+        }
+        return payload;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = journal.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of sale journal");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private void fireBacklogChanged() {
+        int current = getBacklog();
+        for (IntConsumer listener : backlogListeners) {
+            listener.accept(current);
+        }
+    }
+
+    private void fireRejected(int count) {
+        for (IntConsumer listener : rejectListeners) {
+            listener.accept(count);
+        }
+    }
+
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof SQLTransientException || e instanceof SQLRecoverableException
+                || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        // SQLState class 08 = connection exception
+        return e instanceof SQLException && ((SQLException) e).getSQLState() != null
+                && ((SQLException) e).getSQLState().startsWith("08");
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- Binary record format ---
+
+    static byte[] encode(Sale sale) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(sale.getInvoiceNo());
+        out.writeInt(sale.getCustomerId() != null ? sale.getCustomerId() : -1);
+        out.writeInt(sale.getUserId());
+        out.writeLong(sale.getSaleDate().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(sale.getSaleDate().getNano());
+        writeDecimal(out, sale.getSubtotal());
+        writeDecimal(out, sale.getTax());
+        writeDecimal(out, sale.getDiscount());
+        writeDecimal(out, sale.getTotalAmount());
+        writeDecimal(out, sale.getAmountPaid());
+        writeString(out, sale.getPaymentMethod());
+        writeString(out, sale.getNotes());
+        out.writeInt(sale.getItems().size());
+        for (SaleItem item : sale.getItems()) {
+            out.writeInt(item.getProductId());
+            out.writeInt(item.getQuantity());
+            writeDecimal(out, item.getUnitPrice());
+        }
+        out.flush();
+        return frame(bytes.toByteArray()).array();
+    }
+
+    static Sale decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Sale sale = new Sale();
+        sale.setInvoiceNo(in.readUTF());
+        int customerId = in.readInt();
+        sale.setCustomerId(customerId >= 0 ? customerId : null);
+        sale.setUserId(in.readInt());
+        sale.setSaleDate(LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC));
+        sale.setSubtotal(readDecimal(in));
+        sale.setTax(readDecimal(in));
+        sale.setDiscount(readDecimal(in));
+        sale.setTotalAmount(readDecimal(in));
+        sale.setAmountPaid(readDecimal(in));
+        sale.setPaymentMethod(readString(in));
+        sale.setNotes(readString(in));
+        int count = in.readInt();
+        List<SaleItem> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SaleItem item = new SaleItem();
+            item.setProductId(in.readInt());
+            item.setQuantity(in.readInt());
+            item.setUnitPrice(readDecimal(in));
+            items.add(item);
+        }
+        sale.setItems(items);
+        return sale;
+    }
+
+    private static ByteBuffer frame(byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length + 4);
+        record.putInt(RECORD_MAGIC).putInt(payload.length).put(payload).putInt(crc(payload));
+        record.flip();
+        return record;
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    // Amounts as scale + unscaled value; scale -1 means null
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(-1);
+            return;
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        if (value.scale() > Byte.MAX_VALUE || value.unscaledValue().bitLength() > 63) {
+            throw new IOException("Amount does not fit the journal record: " + value);
+        }
+        out.writeByte(value.scale());
+        out.writeLong(value.unscaledValue().longValue());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readByte();
+        return scale < 0 ? null : new BigDecimal(BigInteger.valueOf(in.readLong()), scale);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
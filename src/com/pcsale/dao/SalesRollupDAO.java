@@ -0,0 +1,235 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Sale;
+import com.pcsale.util.DatabaseConfig;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SalesRollupDAO - Maintains the sales_daily and sales_hourly summary tables
+ *
+ * Each row holds the count, total, tax and discount of the sales for one
+ * day (or hour) and payment method. createSale adds to them in its own
+ * transaction, so the report charts can read a few hundred summed rows
+ * instead of grouping the whole sales table.
+ */
+public class SalesRollupDAO {
+
+    private static final String DAILY_UPSERT =
+        "INSERT INTO sales_daily (sale_day, payment_method, sale_count, total_amount, tax, discount) " +
+        "VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE sale_count = sale_count + VALUES(sale_count), " +
+        "total_amount = total_amount + VALUES(total_amount), " +
+        "tax = tax + VALUES(tax), " +
+        "discount = discount + VALUES(discount)";
+
+    private static final String HOURLY_UPSERT =
+        "INSERT INTO sales_hourly (sale_hour, payment_method, sale_count, total_amount, tax, discount) " +
+        "VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE sale_count = sale_count + VALUES(sale_count), " +
+        "total_amount = total_amount + VALUES(total_amount), " +
+        "tax = tax + VALUES(tax), " +
+        "discount = discount + VALUES(discount)";
+
+    /**
+     * Add a sale to the rollups using the caller's transaction
+     */
+    public void recordSale(Connection conn, Sale sale) throws SQLException {
+        recordSales(conn, Collections.singletonList(sale));
+    }
+
+    /**
+     * Add a group of sales to the rollups using the caller's transaction. Sales that
+     * share a row are summed first, and the rows are upserted in key order (day or
+     * hour, then payment method), so every group locks them in the same order.
+     */
+    public void recordSales(Connection conn, List<Sale> sales) throws SQLException {
+        Map<LocalDateTime, Map<String, Totals>> daily = new TreeMap<>();
+        Map<LocalDateTime, Map<String, Totals>> hourly = new TreeMap<>();
+        for (Sale sale : sales) {
+            LocalDateTime saleDate = sale.getSaleDate();
+            add(daily, saleDate.truncatedTo(ChronoUnit.DAYS), sale);
+            add(hourly, saleDate.truncatedTo(ChronoUnit.HOURS), sale);
+        }
+        upsert(conn, DAILY_UPSERT, daily);
+        upsert(conn, HOURLY_UPSERT, hourly);
+    }
+
+    /**
+     * Recompute the rollups for every day from 'from' to 'to' (inclusive) from the sales table.
+     * Each day is rebuilt in its own short transaction.
+     * @return number of days rebuilt, or -1 on error
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        int days = 0;
+        try (Connection conn = DatabaseConfig.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                    rebuildDay(conn, day);
+                    conn.commit();
+                    days++;
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        return days;
+    }
+
+    /**
+     * Per-hour, per-payment-method totals for one day.
+     * Rows are {hour (Integer), payment method (String), count (Integer), total (BigDecimal)}
+     */
+    public List<Object[]> getHourlyTotals(LocalDate day) {
+        List<Object[]> data = new ArrayList<>();
+        String sql = "SELECT HOUR(sale_hour) as hour_of_day, payment_method, " +
+                     "SUM(sale_count) as count, SUM(total_amount) as total " +
+                     "FROM sales_hourly " +
+                     "WHERE sale_hour >= ? AND sale_hour < ? " +
+                     "GROUP BY HOUR(sale_hour), payment_method";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(day.atStartOfDay()));
+            stmt.setTimestamp(2, Timestamp.valueOf(day.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    data.add(new Object[]{
+                        rs.getInt("hour_of_day"),
+                        rs.getString("payment_method"),
+                        rs.getInt("count"),
+                        rs.getBigDecimal("total")
+                    });
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Date of the oldest sale, or null if there are none
+     */
+    public LocalDate getFirstSaleDay() {
+        String sql = "SELECT MIN(sale_date) as first_sale FROM sales";
+
+        try (Connection conn = DatabaseConfig.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next() && rs.getTimestamp("first_sale") != null) {
+                return rs.getTimestamp("first_sale").toLocalDateTime().toLocalDate();
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    private void rebuildDay(Connection conn, LocalDate day) throws SQLException {
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM sales_daily WHERE sale_day = ?")) {
+            stmt.setDate(1, Date.valueOf(day));
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "DELETE FROM sales_hourly WHERE sale_hour >= ? AND sale_hour < ?")) {
+            stmt.setTimestamp(1, start);
+            stmt.setTimestamp(2, end);
+            stmt.executeUpdate();
+        }
+
+        String dailySql =
+            "INSERT INTO sales_daily (sale_day, payment_method, sale_count, total_amount, tax, discount) " +
+            "SELECT DATE(sale_date), payment_method, COUNT(*), SUM(total_amount), SUM(tax), SUM(discount) " +
+            "FROM sales WHERE sale_date >= ? AND sale_date < ? " +
+            "GROUP BY DATE(sale_date), payment_method";
+        try (PreparedStatement stmt = conn.prepareStatement(dailySql)) {
+            stmt.setTimestamp(1, start);
+            stmt.setTimestamp(2, end);
+            stmt.executeUpdate();
+        }
+
+        String hourlySql =
+            "INSERT INTO sales_hourly (sale_hour, payment_method, sale_count, total_amount, tax, discount) " +
+            "SELECT DATE_FORMAT(sale_date, '%Y-%m-%d %H:00:00'), payment_method, " +
+            "COUNT(*), SUM(total_amount), SUM(tax), SUM(discount) " +
+            "FROM sales WHERE sale_date >= ? AND sale_date < ? " +
+            "GROUP BY DATE_FORMAT(sale_date, '%Y-%m-%d %H:00:00'), payment_method";
+        try (PreparedStatement stmt = conn.prepareStatement(hourlySql)) {
+            stmt.setTimestamp(1, start);
+            stmt.setTimestamp(2, end);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static void add(Map<LocalDateTime, Map<String, Totals>> rows, LocalDateTime period, Sale sale) {
+        rows.computeIfAbsent(period, k -> new TreeMap<>())
+            .computeIfAbsent(sale.getPaymentMethod(), k -> new Totals())
+            .add(sale);
+    }
+
+    /**
+     * One upsert per row, batched; the period is bound as a timestamp (midnight for days)
+     */
+    private void upsert(Connection conn, String sql, Map<LocalDateTime, Map<String, Totals>> rows)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<LocalDateTime, Map<String, Totals>> period : rows.entrySet()) {
+                for (Map.Entry<String, Totals> row : period.getValue().entrySet()) {
+                    Totals totals = row.getValue();
+                    stmt.setTimestamp(1, Timestamp.valueOf(period.getKey()));
+                    stmt.setString(2, row.getKey());
+                    stmt.setInt(3, totals.count);
+                    stmt.setBigDecimal(4, totals.total);
+                    stmt.setBigDecimal(5, totals.tax);
+                    stmt.setBigDecimal(6, totals.discount);
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Summed amounts of the sales that fall in one rollup row
+     */
+    private static class Totals {
+        private int count;
+        private BigDecimal total = BigDecimal.ZERO;
+        private BigDecimal tax = BigDecimal.ZERO;
+        private BigDecimal discount = BigDecimal.ZERO;
+
+        private void add(Sale sale) {
+            count++;
+            total = plus(total, sale.getTotalAmount());
+            tax = plus(tax, sale.getTax());
+            discount = plus(discount, sale.getDiscount());
+        }
+
+        private static BigDecimal plus(BigDecimal sum, BigDecimal amount) {
+            return amount == null ? sum : sum.add(amount);
+        }
+    }
+}
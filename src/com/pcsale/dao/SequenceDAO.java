@@ -0,0 +1,183 @@
+package com.pcsale.dao;
+
+import com.pcsale.util.DatabaseConfig;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * SequenceDAO - Allocates invoice numbers and customer codes
+ *
+ * Each application instance leases a block of numbers from the
+ * number_sequences table with one atomic UPDATE and hands them out from
+ * memory. Tills never collide because every block is reserved in the
+ * database; numbers left in a block when the application exits are skipped.
+ * When a block runs low the next one is leased on a background thread, so
+ * tryNextValue (used at the till) never waits on the database.
+ */
+public class SequenceDAO {
+
+    public static final String INVOICE = "invoice";
+    public static final String CUSTOMER = "customer";
+
+    private static final int BLOCK_SIZE = 20;
+
+    // Lease the next block in the background once fewer numbers than this are left
+    private static final int REFILL_BELOW = BLOCK_SIZE / 4;
+
+    // Seed queries used the first time a sequence is leased, so numbering continues from existing data
+    private static final Map<String, String> SEED_SQL = new HashMap<>();
+    static {
+        SEED_SQL.put(INVOICE,
+            "SELECT COALESCE(MAX(CAST(SUBSTRING(invoice_no, 4) AS UNSIGNED)), 0) + 1 FROM sales");
+        SEED_SQL.put(CUSTOMER,
+            "SELECT COALESCE(MAX(CAST(SUBSTRING(customer_code, 5) AS UNSIGNED)), 0) + 1 FROM customers");
+    }
+
+    // Leased blocks shared by every POSPanel/CustomerPanel in this JVM (guarded by blocks)
+    private static final Map<String, Block> blocks = new HashMap<>();
+    private static final Map<String, Block> spares = new HashMap<>();
+    private static final Set<String> refilling = new HashSet<>();
+
+    private static final ExecutorService refiller = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "pcsale-sequence-lease");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Get the next number of a sequence, leasing a new block when the current one runs out
+     */
+    public long nextValue(String sequence) throws SQLException {
+        synchronized (blocks) {
+            long value = take(sequence);
+            if (value < 0) {
+                blocks.put(sequence, leaseBlock(sequence));
+                value = take(sequence);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Get the next number from the blocks already leased, without touching the database
+     * @return the number, or -1 if none is leased yet (the next block is being fetched)
+     */
+    public long tryNextValue(String sequence) {
+        synchronized (blocks) {
+            return take(sequence);
+        }
+    }
+
+    /**
+     * Start leasing a block in the background if fewer than REFILL_BELOW numbers are left
+     */
+    public void prefetch(String sequence) {
+        synchronized (blocks) {
+            refillIfLow(sequence);
+        }
+    }
+
+    /**
+     * Hand out the next leased number (caller holds the blocks lock)
+     */
+    private long take(String sequence) {
+        Block block = blocks.get(sequence);
+        if (block == null || block.next >= block.end) {
+            block = spares.remove(sequence);
+            if (block != null) {
+                blocks.put(sequence, block);
+            }
+        }
+        long value = block != null && block.next < block.end ? block.next++ : -1;
+        refillIfLow(sequence);
+        return value;
+    }
+
+    private void refillIfLow(String sequence) {
+        Block block = blocks.get(sequence);
+        long left = block == null ? 0 : block.end - block.next;
+        if (left >= REFILL_BELOW || spares.containsKey(sequence) || !refilling.add(sequence)) {
+            return;
+        }
+        refiller.execute(() -> {
+            Block leased = null;
+            try {
+                leased = leaseBlock(sequence);
+            } catch (SQLException e) {
+                System.err.println("Could not lease " + sequence + " numbers: " + e.getMessage());
+            }
+            synchronized (blocks) {
+                refilling.remove(sequence);
+                if (leased != null) {
+                    spares.put(sequence, leased);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reserve BLOCK_SIZE numbers in one statement; LAST_INSERT_ID(expr) returns the new high-water mark
+     */
+    private Block leaseBlock(String sequence) throws SQLException {
+        String sql = "UPDATE number_sequences SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+
+        Connection pooled = DatabaseConfig.getConnection();
+        if (pooled == null) {
+            throw new SQLException("Database unavailable", "08001");
+        }
+        try (Connection conn = pooled) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, BLOCK_SIZE);
+                    stmt.setString(2, sequence);
+
+                    if (stmt.executeUpdate() > 0) {
+                        try (Statement idStmt = conn.createStatement();
+                             ResultSet rs = idStmt.executeQuery("SELECT LAST_INSERT_ID()")) {
+                            rs.next();
+                            long end = rs.getLong(1);
+                            return new Block(end - BLOCK_SIZE, end);
+                        }
+                    }
+                }
+                seedSequence(conn, sequence);
+            }
+        }
+        throw new SQLException("Could not lease numbers for sequence " + sequence);
+    }
+
+    /**
+     * Create the sequence row from existing data; INSERT IGNORE lets concurrent tills race safely
+     */
+    private void seedSequence(Connection conn, String sequence) throws SQLException {
+        String seedSql = SEED_SQL.get(sequence);
+        if (seedSql == null) {
+            throw new SQLException("Unknown sequence " + sequence);
+        }
+        String sql = "INSERT IGNORE INTO number_sequences (name, next_value) SELECT ?, (" + seedSql + ")";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, sequence);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Half-open range [next, end) of numbers reserved by this instance
+     */
+    private static class Block {
+        private long next;
+        private final long end;
+
+        Block(long next, long end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.pcsale.dao;
+
+import com.pcsale.model.Product;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StockReservations - Soft holds on stock while it sits in a cart
+ *
+ * A cart reserves a quantity when an item is added, and the reservation
+ * only succeeds if the catalog stock minus everything already held covers
+ * it, so two carts on this till cannot both take the last unit. Holds
+ * expire HOLD_TTL_MINUTES after the cart last changed, so abandoned carts
+ * give their stock back. At checkout the holds move to the invoice number
+ * and are released once the sale is committed (SaleDAO.afterCommit) and the
+ * catalog stock has been reduced. Other tills are guarded by the
+ * conditional stock decrement in SaleDAO, which fails the sale on conflict.
+ * A journaled sale only reaches that decrement later, so checkout first
+ * calls findShortfall() with fresh database stock: a conflict with another
+ * till then still fails at the till while the customer is there.
+ *
+ * Holds are guarded by STRIPES locks chosen by product id, so carts working
+ * on different products never wait for each other.
+ */
+public class StockReservations {
+
+    private static final int STRIPES = 64; // power of two
+    private static final long HOLD_TTL_MINUTES = 15;
+    private static final long PENDING_TTL_MINUTES = 60; // checked out, waiting to be committed
+
+    private static final StockReservations instance = new StockReservations();
+
+    private final Object[] locks = new Object[STRIPES];
+    // product id -> (owner -> hold); a product's map is guarded by its stripe lock
+    private final Map<Integer, Map<String, Hold>> holdsByProduct = new ConcurrentHashMap<>();
+    // owner -> products it holds, for releasing or moving a whole cart
+    private final Map<String, Set<Integer>> productsByOwner = new ConcurrentHashMap<>();
+    private final ProductCatalog catalog = ProductCatalog.getInstance();
+
+    private StockReservations() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public static StockReservations getInstance() {
+        return instance;
+    }
+
+    /**
+     * Hold more of a product for a cart
+     * @return false if the stock not held by anyone else does not cover it
+     */
+    public boolean reserve(String owner, int productId, int quantity) {
+        Product product = catalog.getById(productId);
+        if (product == null) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (lockFor(productId)) {
+            Map<String, Hold> holds = holdsByProduct.computeIfAbsent(productId, id -> new HashMap<>());
+            if (held(holds, now) + quantity > product.getStockQuantity()) {
+                return false;
+            }
+            Hold hold = holds.computeIfAbsent(owner, o -> new Hold());
+            hold.quantity += quantity;
+            hold.expiresAt = now + TimeUnit.MINUTES.toMillis(HOLD_TTL_MINUTES);
+        }
+        productsByOwner.computeIfAbsent(owner, o -> ConcurrentHashMap.newKeySet()).add(productId);
+        renew(owner, now + TimeUnit.MINUTES.toMillis(HOLD_TTL_MINUTES));
+        return true;
+    }
+
+    /**
+     * Give back part of a cart's hold (e.g. an item removed from the cart)
+     */
+    public void release(String owner, int productId, int quantity) {
+        synchronized (lockFor(productId)) {
+            Map<String, Hold> holds = holdsByProduct.get(productId);
+            Hold hold = holds != null ? holds.get(owner) : null;
+            if (hold == null) {
+                return;
+            }
+            hold.quantity -= quantity;
+            if (hold.quantity <= 0) {
+                holds.remove(owner);
+                Set<Integer> products = productsByOwner.get(owner);
+                if (products != null) {
+                    products.remove(productId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Give back everything an owner holds
+     */
+    public void releaseAll(String owner) {
+        Set<Integer> products = productsByOwner.remove(owner);
+        if (products == null) {
+            return;
+        }
+        for (int productId : products) {
+            synchronized (lockFor(productId)) {
+                Map<String, Hold> holds = holdsByProduct.get(productId);
+                if (holds != null) {
+                    holds.remove(owner);
+                }
+            }
+        }
+    }
+
+    /**
+     * Move a cart's holds to the invoice number at checkout, kept until the sale is committed
+     */
+    public void transfer(String from, String to) {
+        move(from, to, true, PENDING_TTL_MINUTES);
+    }
+
+    /**
+     * Give an invoice's holds back to its cart when the checkout failed
+     */
+    public void cancelTransfer(String invoiceNo, String cartId) {
+        move(invoiceNo, cartId, false, HOLD_TTL_MINUTES);
+    }
+
+    private void move(String from, String to, boolean pending, long ttlMinutes) {
+        Set<Integer> products = productsByOwner.remove(from);
+        if (products == null) {
+            return;
+        }
+        long expiresAt = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(ttlMinutes);
+        Set<Integer> moved = productsByOwner.computeIfAbsent(to, o -> ConcurrentHashMap.newKeySet());
+        for (int productId : products) {
+            synchronized (lockFor(productId)) {
+                Map<String, Hold> holds = holdsByProduct.get(productId);
+                Hold hold = holds != null ? holds.remove(from) : null;
+                if (hold != null) {
+                    hold.expiresAt = expiresAt;
+                    hold.pending = pending;
+                    holds.put(to, hold);
+                    moved.add(productId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Check a cart against current stock before it is checked out
+     * @param stock product id -> current stock (e.g. from the catalog)
+     * @return id of a product the stock no longer covers (this cart plus the checked-out
+     *         sales on this till still waiting to be committed), or -1 if it all fits
+     */
+    public int findShortfall(String owner, Map<Integer, Integer> stock) {
+        Set<Integer> products = productsByOwner.get(owner);
+        if (products == null) {
+            return -1;
+        }
+        long now = System.currentTimeMillis();
+        for (int productId : products) {
+            synchronized (lockFor(productId)) {
+                Map<String, Hold> holds = holdsByProduct.get(productId);
+                if (holds == null) {
+                    continue;
+                }
+                held(holds, now); // drop expired holds
+                int needed = 0;
+                for (Map.Entry<String, Hold> entry : holds.entrySet()) {
+                    if (entry.getKey().equals(owner) || entry.getValue().pending) {
+                        needed += entry.getValue().quantity;
+                    }
+                }
+                Integer available = stock.get(productId);
+                if (needed > 0 && (available == null || needed > available)) {
+                    return productId;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Catalog stock not held by any cart
+     */
+    public int getAvailable(int productId) {
+        Product product = catalog.getById(productId);
+        if (product == null) {
+            return 0;
+        }
+        synchronized (lockFor(productId)) {
+            Map<String, Hold> holds = holdsByProduct.get(productId);
+            int held = holds != null ? held(holds, System.currentTimeMillis()) : 0;
+            return Math.max(0, product.getStockQuantity() - held);
+        }
+    }
+
+    /**
+     * Extend all of an owner's holds (the cart is still in use)
+     */
+    private void renew(String owner, long expiresAt) {
+        Set<Integer> products = productsByOwner.get(owner);
+        if (products == null) {
+            return;
+        }
+        for (int productId : products) {
+            synchronized (lockFor(productId)) {
+                Map<String, Hold> holds = holdsByProduct.get(productId);
+                Hold hold = holds != null ? holds.get(owner) : null;
+                if (hold != null) {
+                    hold.expiresAt = Math.max(hold.expiresAt, expiresAt);
+                }
+            }
+        }
+    }
+
+    /**
+     * Total held quantity, dropping expired holds (caller holds the stripe lock)
+     */
+    private int held(Map<String, Hold> holds, long now) {
+        int total = 0;
+        Iterator<Map.Entry<String, Hold>> it = holds.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Hold> entry = it.next();
+            if (entry.getValue().expiresAt <= now) {
+                it.remove();
+            } else {
+                total += entry.getValue().quantity;
+            }
+        }
+        return total;
+    }
+
+    private Object lockFor(int productId) {
+        int h = productId * 0x9E3779B9; // spread consecutive ids over the stripes
+        return locks[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Quantity held by one owner for one product
+     */
+    private static class Hold {
+        private int quantity;
+        private long expiresAt;
+        private boolean pending; // checked out, waiting to be committed
+    }
+}
@@ -0,0 +1,121 @@
+package com.pcsale.gui;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * AsyncSearch - Debounced search-as-you-type that runs off the EDT
+ *
+ * Each keystroke reschedules the query after a short delay. Queries run on
+ * a background worker; when a newer keystroke arrives the pending or
+ * running query is cancelled and its results are dropped. Results reach
+ * the EDT through a one-slot queue, so a slow EDT only ever paints the
+ * latest result.
+ */
+public class AsyncSearch<T> {
+
+    private static final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pcsale-search");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Function<String, List<T>> query;
+    private final Consumer<List<T>> onResults;
+    private final long debounceMillis;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final BlockingQueue<Result<T>> results = new ArrayBlockingQueue<>(1);
+    private Future<?> pending;
+
+    /**
+     * @param query runs on the worker thread
+     * @param onResults runs on the EDT with the results of the latest query
+     */
+    public AsyncSearch(Function<String, List<T>> query, Consumer<List<T>> onResults, long debounceMillis) {
+        this.query = query;
+        this.onResults = onResults;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Schedule a search after the debounce delay (call on every keystroke)
+     */
+    public void submit(String keyword) {
+        schedule(keyword, debounceMillis);
+    }
+
+    /**
+     * Search immediately (Enter key / Search button)
+     */
+    public void submitNow(String keyword) {
+        schedule(keyword, 0);
+    }
+
+    /**
+     * Drop any pending or running search (e.g. when the panel is removed)
+     */
+    public synchronized void cancel() {
+        generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+            pending = null;
+        }
+    }
+
+    private synchronized void schedule(String keyword, long delayMillis) {
+        long gen = generation.incrementAndGet();
+        if (pending != null) {
+            pending.cancel(true);
+        }
+        pending = worker.schedule(() -> run(gen, keyword), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void run(long gen, String keyword) {
+        if (gen != generation.get()) {
+            return;
+        }
+
+        List<T> found;
+        try {
+            found = query.apply(keyword);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (gen != generation.get() || Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        // Keep only the newest result; the EDT drains whatever is there
+        results.clear();
+        results.offer(new Result<>(gen, found));
+        SwingUtilities.invokeLater(this::publish);
+    }
+
+    private void publish() {
+        Result<T> result = results.poll();
+        if (result != null && result.generation == generation.get()) {
+            onResults.accept(result.items);
+        }
+    }
+
+    private static class Result<T> {
+        private final long generation;
+        private final List<T> items;
+
+        Result(long generation, List<T> items) {
+            this.generation = generation;
+            this.items = items;
+        }
+    }
+}
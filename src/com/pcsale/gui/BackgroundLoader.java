@@ -0,0 +1,193 @@
+package com.pcsale.gui;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import java.awt.event.HierarchyEvent;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * BackgroundLoader - Runs a panel's data loads on a shared worker pool
+ *
+ * Each panel owns one loader. Loads are identified by a key: asking for a
+ * key that is already running does not start a second query, it just
+ * re-runs once with the latest request when the first finishes. Results
+ * are delivered on the EDT. When the panel is removed from the window
+ * (e.g. the user switches panels) all of its loads are cancelled and
+ * their results discarded.
+ *
+ * All methods must be called on the EDT.
+ */
+public class BackgroundLoader {
+
+    /**
+     * Work done on the background thread
+     */
+    public interface Job<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Lets a job report progress and notice cancellation
+     */
+    public interface Progress {
+        void update(int percent, String message);
+
+        boolean isCancelled();
+    }
+
+    private static final int WORKERS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int QUEUE_CAPACITY = 100;
+
+    private static final ThreadPoolExecutor executor;
+    static {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "pcsale-loader-" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final Map<String, Slot<?>> slots = new HashMap<>();
+    private BiConsumer<Integer, String> progressListener;
+
+    public BackgroundLoader(JComponent owner) {
+        owner.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) != 0 && !owner.isDisplayable()) {
+                cancelAll();
+            }
+        });
+    }
+
+    /**
+     * Receive progress updates (percent, message) on the EDT
+     */
+    public void setProgressListener(BiConsumer<Integer, String> listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Run a job in the background and hand its result to onSuccess on the EDT
+     */
+    public <T> void load(String key, Job<T> job, Consumer<T> onSuccess) {
+        load(key, job, onSuccess, Throwable::printStackTrace);
+    }
+
+    public <T> void load(String key, Job<T> job, Consumer<T> onSuccess, Consumer<Exception> onError) {
+        @SuppressWarnings("unchecked")
+        Slot<T> running = (Slot<T>) slots.get(key);
+        if (running != null) {
+            // Coalesce: remember only the latest request and run it when the current one finishes
+            running.next = new Slot<>(job, onSuccess, onError);
+            return;
+        }
+        start(key, new Slot<>(job, onSuccess, onError));
+    }
+
+    /**
+     * Cancel every running load owned by this loader
+     */
+    public void cancelAll() {
+        for (Slot<?> slot : new ArrayList<>(slots.values())) {
+            slot.cancel();
+        }
+        slots.clear();
+    }
+
+    public boolean isLoading(String key) {
+        return slots.containsKey(key);
+    }
+
+    private <T> void start(String key, Slot<T> slot) {
+        slots.put(key, slot);
+        try {
+            slot.future = executor.submit(() -> {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = slot.job.run(slot);
+                } catch (Exception e) {
+                    error = e;
+                }
+                T finalResult = result;
+                Exception finalError = error;
+                SwingUtilities.invokeLater(() -> finish(key, slot, finalResult, finalError));
+            });
+        } catch (RejectedExecutionException e) {
+            finish(key, slot, null, e);
+        }
+    }
+
+    private <T> void finish(String key, Slot<T> slot, T result, Exception error) {
+        if (slots.get(key) != slot || slot.cancelled) {
+            return;
+        }
+        slots.remove(key);
+
+        if (error != null) {
+            slot.onError.accept(error);
+        } else {
+            slot.onSuccess.accept(result);
+        }
+
+        if (slot.next != null) {
+            start(key, slot.next);
+        }
+    }
+
+    /**
+     * One queued or running load
+     */
+    private class Slot<T> implements Progress {
+        private final Job<T> job;
+        private final Consumer<T> onSuccess;
+        private final Consumer<Exception> onError;
+        private volatile boolean cancelled = false;
+        private Future<?> future;
+        private Slot<T> next;
+
+        Slot(Job<T> job, Consumer<T> onSuccess, Consumer<Exception> onError) {
+            this.job = job;
+            this.onSuccess = onSuccess;
+            this.onError = onError;
+        }
+
+        void cancel() {
+            cancelled = true;
+            next = null;
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+
+        @Override
+        public void update(int percent, String message) {
+            if (cancelled) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (!cancelled && progressListener != null) {
+                    progressListener.accept(percent, message);
+                }
+            });
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled || Thread.currentThread().isInterrupted();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.pcsale.gui;
 
+import com.pcsale.dao.CustomerCatalog;
 import com.pcsale.dao.CustomerDAO;
 import com.pcsale.model.Customer;
 
@@ -14,15 +15,27 @@ import java.util.List;
  */
 public class CustomerPanel extends JPanel {
     
+    private static final int SEARCH_LIMIT = 50;
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    
     private JTable table;
     private DefaultTableModel tableModel;
     private JTextField txtSearch;
     private CustomerDAO customerDAO;
+    private CustomerCatalog customerCatalog;
+    private AsyncSearch<Customer> customerSearch;
+    private BackgroundLoader loader;
     
     public CustomerPanel() {
         customerDAO = new CustomerDAO();
+        customerCatalog = CustomerCatalog.getInstance();
+        customerSearch = new AsyncSearch<>(
+            keyword -> keyword.isEmpty() ? customerCatalog.getCustomers() : customerCatalog.search(keyword, SEARCH_LIMIT),
+            this::showCustomers,
+            SEARCH_DEBOUNCE_MS);
+        loader = new BackgroundLoader(this);
         initComponents();
-        loadCustomers();
+        reloadCustomers();
     }
     
     private void initComponents() {
@@ -55,7 +68,7 @@ public class CustomerPanel extends JPanel {
         btnRefresh.setBackground(new Color(149, 165, 166));
         btnRefresh.setForeground(Color.WHITE);
         btnRefresh.setFocusPainted(false);
-        btnRefresh.addActionListener(e -> loadCustomers());
+        btnRefresh.addActionListener(e -> reloadCustomers());
         
         searchPanel.add(lblSearch);
         searchPanel.add(txtSearch);
@@ -118,30 +131,31 @@ public class CustomerPanel extends JPanel {
     }
     
     private void loadCustomers() {
-        tableModel.setRowCount(0);
-        List<Customer> customers = customerDAO.getAllCustomers();
-        for (Customer customer : customers) {
-            tableModel.addRow(new Object[]{
-                customer.getId(),
-                customer.getCustomerCode(),
-                customer.getName(),
-                customer.getPhone(),
-                customer.getEmail(),
-                customer.getAddress(),
-                customer.getPoints()
-            });
-        }
+        showCustomers(customerCatalog.getCustomers());
+    }
+    
+    /**
+     * Re-read the customers table in the background (picks up customers added on other tills)
+     */
+    private void reloadCustomers() {
+        loader.load("customers", progress -> {
+            customerCatalog.reload();
+            return customerCatalog.getCustomers();
+        }, this::showCustomers);
     }
     
     private void searchCustomers() {
-        String keyword = txtSearch.getText().trim();
-        if (keyword.isEmpty()) {
-            loadCustomers();
-            return;
-        }
-        
+        customerSearch.submit(txtSearch.getText().trim());
+    }
+    
+    @Override
+    public void removeNotify() {
+        customerSearch.cancel();
+        super.removeNotify();
+    }
+    
+    private void showCustomers(List<Customer> customers) {
         tableModel.setRowCount(0);
-        List<Customer> customers = customerDAO.searchCustomers(keyword);
         for (Customer customer : customers) {
             tableModel.addRow(new Object[]{
                 customer.getId(),
@@ -0,0 +1,185 @@
+package com.pcsale.gui;
+
+import com.pcsale.util.Metrics;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EdtWatchdog - Times every event on the Swing event thread and reports stalls
+ *
+ * Installs an EventQueue that times each dispatched event into a Metrics
+ * timer per panel ("edt.POSPanel", "edt.MainDashboard", ...), so the
+ * periodic metrics log shows which screen blocks the UI thread. A watchdog
+ * thread samples the running event; once it has run longer than
+ * STALL_THRESHOLD_MS (-Dpcsale.edt.stallMillis) the EDT stack is captured,
+ * and when the event finally finishes the stall is printed with its full
+ * duration and that stack (e.g. a DAO call inside POSPanel.completeSale).
+ *
+ * Time spent in a nested event loop (a modal dialog opened by the handler)
+ * belongs to the events dispatched inside it, not to the handler.
+ */
+public class EdtWatchdog extends EventQueue {
+
+    private static final long STALL_THRESHOLD_MS = Long.getLong("pcsale.edt.stallMillis", 200);
+
+    private static EdtWatchdog installed = null;
+
+    private final Metrics metrics = Metrics.getInstance();
+    private final long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(STALL_THRESHOLD_MS);
+    private final Deque<Dispatch> dispatching = new ArrayDeque<>(); // EDT only
+    private volatile Dispatch current;
+    private volatile Thread eventThread;
+
+    private EdtWatchdog() {
+    }
+
+    /**
+     * Replace the system event queue with a monitored one and start the watchdog
+     */
+    public static synchronized void install() {
+        if (installed != null) {
+            return;
+        }
+        installed = new EdtWatchdog();
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(installed);
+
+        Thread watchdog = new Thread(installed::watch, "pcsale-edt-watchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        Dispatch outer = dispatching.peek();
+        Dispatch dispatch = new Dispatch(event, start);
+        dispatching.push(dispatch);
+        eventThread = Thread.currentThread();
+        current = dispatch;
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long end = System.nanoTime();
+            dispatching.pop();
+            if (outer != null) {
+                outer.nestedNanos += end - start;
+                outer.runningSince = end;
+            }
+            current = outer;
+            finished(dispatch, end - start - dispatch.nestedNanos);
+        }
+    }
+
+    private void finished(Dispatch dispatch, long nanos) {
+        String panel = panelName(dispatch.event);
+        metrics.record("edt." + panel, nanos);
+
+        StackTraceElement[] stack = dispatch.stallStack;
+        if (stack != null) {
+            metrics.increment("edt.stalls");
+            StringBuilder report = new StringBuilder();
+            report.append("EDT stall: ").append(TimeUnit.NANOSECONDS.toMillis(nanos)).append("ms in ")
+                  .append(panel).append(" handling ").append(describe(dispatch.event)).append('\n');
+            for (StackTraceElement frame : stack) {
+                if (frame.getClassName().equals(EventQueue.class.getName())) {
+                    break; // the rest is the dispatch machinery
+                }
+                report.append("\tat ").append(frame).append('\n');
+            }
+            System.err.print(report);
+        }
+    }
+
+    /**
+     * Watchdog thread: capture the EDT stack of an event running past the threshold
+     */
+    private void watch() {
+        long interval = Math.max(10, STALL_THRESHOLD_MS / 4);
+        while (true) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            Dispatch dispatch = current;
+            Thread edt = eventThread;
+            if (dispatch != null && edt != null && dispatch.stallStack == null
+                    && System.nanoTime() - dispatch.runningSince > thresholdNanos) {
+                StackTraceElement[] stack = edt.getStackTrace();
+                if (current == dispatch) { // still the same event, so the stack belongs to it
+                    dispatch.stallStack = stack;
+                }
+            }
+        }
+    }
+
+    /**
+     * Simple name of the pcsale panel or frame an event belongs to
+     */
+    private static String panelName(AWTEvent event) {
+        Object source = event.getSource();
+        if (source instanceof Component) {
+            for (Component c = (Component) source; c != null; c = c.getParent()) {
+                String name = c.getClass().getName();
+                if (name.startsWith("com.pcsale.gui.")) {
+                    return simpleName(name);
+                }
+            }
+            return "other";
+        }
+        if (event instanceof InvocationEvent) {
+            // invokeLater / Swing timers: attribute to the class that posted the runnable
+            String param = event.paramString();
+            int at = param.indexOf("runnable=");
+            if (at >= 0) {
+                String runnable = param.substring(at + 9);
+                runnable = runnable.substring(0, indexOfOrEnd(runnable, ','));
+                return simpleName(runnable.substring(0, indexOfOrEnd(runnable, '@')));
+            }
+            return "invocation";
+        }
+        return "other";
+    }
+
+    /**
+     * "com.pcsale.gui.POSPanel$$Lambda$12/123" -> "POSPanel"
+     */
+    private static String simpleName(String className) {
+        String outer = className.substring(0, indexOfOrEnd(className, '$'));
+        return outer.substring(outer.lastIndexOf('.') + 1);
+    }
+
+    private static int indexOfOrEnd(String s, char c) {
+        int i = s.indexOf(c);
+        return i >= 0 ? i : s.length();
+    }
+
+    private static String describe(AWTEvent event) {
+        String param = event.paramString();
+        int comma = param.indexOf(',');
+        return event.getClass().getSimpleName() + " " + (comma > 0 ? param.substring(0, comma) : param);
+    }
+
+    /**
+     * One event being dispatched
+     */
+    private static class Dispatch {
+        private final AWTEvent event;
+        private volatile long runningSince;
+        private long nestedNanos;
+        private volatile StackTraceElement[] stallStack;
+
+        Dispatch(AWTEvent event, long start) {
+            this.event = event;
+            this.runningSince = start;
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.pcsale.gui;
 
+import com.pcsale.dao.SaleJournal;
 import com.pcsale.dao.UserDAO;
 import com.pcsale.model.User;
 import com.pcsale.util.DatabaseConfig;
+import com.pcsale.util.Metrics;
 import com.pcsale.util.SessionManager;
 
 import javax.swing.*;
@@ -180,6 +182,19 @@ public class LoginFrame extends JFrame {
             e.printStackTrace();
         }
         
+        // Recover the local sale journal and save any sales left from the last run
+        SaleJournal.getInstance().start();
+        String journalWarning = SaleJournal.getInstance().getRecoveryWarning();
+        if (journalWarning != null) {
+            JOptionPane.showMessageDialog(null, journalWarning, "Sale Journal Recovered", JOptionPane.WARNING_MESSAGE);
+        }
+        
+        // Periodic p50/p99/max per DAO call on stdout (-Dpcsale.metrics.logSeconds)
+        Metrics.getInstance().startLogging();
+        
+        // Per-panel event latency and stack traces of UI freezes (-Dpcsale.edt.stallMillis)
+        EdtWatchdog.install();
+        
         SwingUtilities.invokeLater(() -> {
             new LoginFrame().setVisible(true);
         });
@@ -1,8 +1,7 @@
 package com.pcsale.gui;
 
-import com.pcsale.dao.ProductDAO;
-import com.pcsale.dao.SaleDAO;
-import com.pcsale.dao.CustomerDAO;
+import com.pcsale.dao.DashboardStatsDAO;
+import com.pcsale.dao.LiveSalesStats;
 import com.pcsale.util.SessionManager;
 import com.pcsale.util.Formatter;
 
@@ -17,14 +16,10 @@ public class MainDashboard extends JFrame {
     
     private JPanel contentPanel;
     private JLabel lblWelcome;
-    private ProductDAO productDAO;
-    private SaleDAO saleDAO;
-    private CustomerDAO customerDAO;
+    private DashboardStatsDAO dashboardStatsDAO;
     
     public MainDashboard() {
-        productDAO = new ProductDAO();
-        saleDAO = new SaleDAO();
-        customerDAO = new CustomerDAO();
+        dashboardStatsDAO = new DashboardStatsDAO();
         initComponents();
         showDashboardPanel();
     }
@@ -141,27 +136,16 @@ public class MainDashboard extends JFrame {
         lblDashboard.setBounds(30, 20, 300, 30);
         dashPanel.add(lblDashboard);
         
-        // Stats cards
+        // Stats cards (filled in once the background load finishes)
         int yPos = 70;
         
-        // Today's Sales
-        double todaySales = saleDAO.getTodaySalesTotal();
-        addStatCard(dashPanel, "Today's Sales", Formatter.formatCurrency(todaySales), 
+        JLabel lblTodaySales = addStatCard(dashPanel, "Today's Sales", "...", 
                     new Color(46, 213, 115), 30, yPos);
-        
-        // Total Products
-        int totalProducts = productDAO.getAllProducts().size();
-        addStatCard(dashPanel, "Total Products", String.valueOf(totalProducts), 
+        JLabel lblTotalProducts = addStatCard(dashPanel, "Total Products", "...", 
                     new Color(52, 152, 219), 280, yPos);
-        
-        // Total Customers
-        int totalCustomers = customerDAO.getCustomerCount();
-        addStatCard(dashPanel, "Total Customers", String.valueOf(totalCustomers), 
+        JLabel lblTotalCustomers = addStatCard(dashPanel, "Total Customers", "...", 
                     new Color(155, 89, 182), 530, yPos);
-        
-        // Low Stock Alert
-        int lowStockCount = productDAO.getLowStockProducts().size();
-        addStatCard(dashPanel, "Low Stock Items", String.valueOf(lowStockCount), 
+        JLabel lblLowStock = addStatCard(dashPanel, "Low Stock Items", "...", 
                     new Color(231, 76, 60), 780, yPos);
         
         // Sales Chart
@@ -170,11 +154,9 @@ public class MainDashboard extends JFrame {
         lblChart.setBounds(30, 210, 300, 30);
         dashPanel.add(lblChart);
         
-        // Get last 7 days sales data
-        java.util.List<Object[]> salesData = saleDAO.getDailySalesData(7);
         SalesChartPanel chartPanel = new SalesChartPanel(
             "Daily Sales", 
-            salesData, 
+            null, 
             "Date", 
             "Sales Amount ($)", 
             SalesChartPanel.ChartType.BAR
@@ -183,6 +165,25 @@ public class MainDashboard extends JFrame {
         chartPanel.setChartColor(new Color(46, 213, 115));
         dashPanel.add(chartPanel);
         
+        // Today's sales from the live in-memory totals (queried only on first use)
+        BackgroundLoader loader = new BackgroundLoader(dashPanel);
+        LiveSalesStats liveStats = LiveSalesStats.getInstance();
+        loader.load("today", progress -> {
+            liveStats.ensureSeeded();
+            return liveStats.getSnapshot();
+        }, today -> lblTodaySales.setText(Formatter.formatCurrency(today.getSalesTotal())));
+        
+        // Counts and last 7 days sales data in one call
+        loader.load("stats", progress -> dashboardStatsDAO.getStats(7), stats -> {
+            if (stats == null) {
+                return;
+            }
+            lblTotalProducts.setText(String.valueOf(stats.getTotalProducts()));
+            lblTotalCustomers.setText(String.valueOf(stats.getTotalCustomers()));
+            lblLowStock.setText(String.valueOf(stats.getLowStockCount()));
+            chartPanel.setData(stats.getDailySales());
+        });
+        
         // Quick actions
         JLabel lblQuick = new JLabel("Quick Actions");
         lblQuick.setFont(new Font("Arial", Font.BOLD, 18));
@@ -224,7 +225,7 @@ public class MainDashboard extends JFrame {
         contentPanel.repaint(); 
     }
     
-    private void addStatCard(JPanel panel, String title, String value, Color color, int x, int y) {
+    private JLabel addStatCard(JPanel panel, String title, String value, Color color, int x, int y) {
         JPanel card = new JPanel(null);
         card.setBounds(x, y, 220, 120);
         card.setBackground(color);
@@ -243,6 +244,7 @@ public class MainDashboard extends JFrame {
         card.add(lblValue);
         
         panel.add(card);
+        return lblValue;
     }
     
     private void showPOSPanel() {
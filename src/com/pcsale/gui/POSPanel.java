@@ -1,7 +1,10 @@
 package com.pcsale.gui;
 
+import com.pcsale.dao.ProductCatalog;
 import com.pcsale.dao.ProductDAO;
 import com.pcsale.dao.SaleDAO;
+import com.pcsale.dao.SaleJournal;
+import com.pcsale.dao.StockReservations;
 import com.pcsale.model.Product;
 import com.pcsale.model.Sale;
 import com.pcsale.model.SaleItem;
@@ -10,19 +13,35 @@ import com.pcsale.util.Formatter;
 import com.pcsale.util.ReceiptGenerator;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
 
 /**
  * POSPanel - Point of Sale interface for making sales
  */
 public class POSPanel extends JPanel {
     
+    private static final int SEARCH_LIMIT = 50;
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    
+    // Keyboard-wedge scanners type a whole barcode within a few milliseconds per key
+    private static final long SCAN_MAX_KEY_GAP_MS = 50;
+    private static final int SCAN_MIN_LENGTH = 4;
+    
     private JTextField txtSearch;
+    private JButton btnCheckout;
     private JTextField txtQuantity;
     private JTable productTable;
     private JTable cartTable;
@@ -35,10 +54,26 @@ public class POSPanel extends JPanel {
     private JTextField txtAmountPaid;
     private JLabel lblChange;
     private JComboBox<String> cboPaymentMethod;
+    private JLabel lblScanStatus;
+    private JLabel lblSyncStatus;
     
     private ProductDAO productDAO;
     private SaleDAO saleDAO;
+    private SaleJournal journal;
+    private ProductCatalog catalog;
+    private StockReservations reservations;
+    private String cartId = UUID.randomUUID().toString(); // owner of this cart's stock holds
+    private AsyncSearch<Product> productSearch;
+    private final AtomicBoolean refreshRequested = new AtomicBoolean(false);
+    private BackgroundLoader loader;
     private List<SaleItem> cartItems;
+    private Map<Integer, Integer> cartRowByProductId;
+    private Map<Integer, Integer> productRowById = new HashMap<>();
+    private String listedKeyword = ""; // search text the product table was last filled for
+    private boolean clearingScan = false;
+    private boolean saving = false; // a direct save or invoice allocation is in progress
+    private long lastKeyTypedAt = 0;
+    private int burstLength = 0;
     private BigDecimal subtotal = BigDecimal.ZERO;
     private BigDecimal tax = BigDecimal.ZERO;
     private BigDecimal discount = BigDecimal.ZERO;
@@ -47,7 +82,13 @@ public class POSPanel extends JPanel {
     public POSPanel() {
         productDAO = new ProductDAO();
         saleDAO = new SaleDAO();
+        journal = SaleJournal.getInstance();
+        catalog = ProductCatalog.getInstance();
+        reservations = StockReservations.getInstance();
+        productSearch = new AsyncSearch<>(this::queryProducts, this::showProducts, SEARCH_DEBOUNCE_MS);
+        loader = new BackgroundLoader(this);
         cartItems = new ArrayList<>();
+        cartRowByProductId = new HashMap<>();
         initComponents();
         loadProducts();
     }
@@ -89,13 +130,25 @@ public class POSPanel extends JPanel {
         btnRefresh.setBackground(new Color(149, 165, 166));
         btnRefresh.setForeground(Color.BLACK);
         btnRefresh.setFocusPainted(false);
-        btnRefresh.addActionListener(e -> loadProducts());
+        btnRefresh.addActionListener(e -> {
+            refreshRequested.set(true);
+            loadProducts();
+        });
         
         searchPanel.add(lblSearch);
         searchPanel.add(txtSearch);
         searchPanel.add(btnSearch);
         searchPanel.add(btnRefresh);
         
+        lblScanStatus = new JLabel(" ");
+        lblScanStatus.setFont(new Font("Arial", Font.PLAIN, 12));
+        searchPanel.add(lblScanStatus);
+        
+        lblSyncStatus = new JLabel(" ");
+        lblSyncStatus.setFont(new Font("Arial", Font.PLAIN, 12));
+        lblSyncStatus.setForeground(new Color(230, 126, 34));
+        searchPanel.add(lblSyncStatus);
+        
         // Product table
         String[] productColumns = {"ID", "Barcode", "Name", "Price", "Stock"};
         productModel = new DefaultTableModel(productColumns, 0) {
@@ -247,7 +300,7 @@ public class POSPanel extends JPanel {
         JPanel checkoutPanel = new JPanel(new FlowLayout(FlowLayout.CENTER));
         checkoutPanel.setBackground(Color.WHITE);
         
-        JButton btnCheckout = new JButton("COMPLETE SALE");
+        btnCheckout = new JButton("COMPLETE SALE");
         btnCheckout.setPreferredSize(new Dimension(350, 50));
         btnCheckout.setBackground(new Color(46, 213, 115));
         btnCheckout.setForeground(Color.BLACK);
@@ -273,12 +326,51 @@ public class POSPanel extends JPanel {
         
         add(splitPane, BorderLayout.CENTER);
         
-        // Enter key on search
+        // Search as you type (debounced, off the EDT)
+        txtSearch.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                productSearch.submit(txtSearch.getText().trim());
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                if (!clearingScan) {
+                    productSearch.submit(txtSearch.getText().trim());
+                }
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        
+        // Enter key on search: a scanner burst goes straight to the cart, anything else searches
         txtSearch.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyTyped(KeyEvent e) {
+                char c = e.getKeyChar();
+                if (c == '\n' || c == KeyEvent.CHAR_UNDEFINED || Character.isISOControl(c)) {
+                    return;
+                }
+                if (e.getWhen() - lastKeyTypedAt > SCAN_MAX_KEY_GAP_MS) {
+                    burstLength = 0;
+                }
+                burstLength++;
+                lastKeyTypedAt = e.getWhen();
+            }
+            
             @Override
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
-                    searchProducts();
+                    if (isScannerBurst(e.getWhen())) {
+                        String barcode = txtSearch.getText().trim();
+                        clearScannedText();
+                        scanBarcode(barcode);
+                    } else {
+                        searchProducts();
+                    }
+                    burstLength = 0;
                 }
             }
         });
@@ -294,6 +386,52 @@ public class POSPanel extends JPanel {
         });
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        catalog.addChangeListener(catalogListener);
+        journal.addBacklogListener(backlogListener);
+        journal.addRejectListener(rejectListener);
+        showBacklog(journal.getBacklog());
+        saleDAO.prefetchInvoiceNumbers();
+    }
+    
+    @Override
+    public void removeNotify() {
+        if (loader.isLoading("invoice")) {
+            setSaving(false); // the allocation is cancelled with the panel's other loads
+        }
+        catalog.removeChangeListener(catalogListener);
+        journal.removeBacklogListener(backlogListener);
+        journal.removeRejectListener(rejectListener);
+        productSearch.cancel();
+        super.removeNotify();
+    }
+    
+    /**
+     * Re-render the product list when the timed catalog refresh pulls in changes
+     */
+    private final Runnable catalogListener = () -> SwingUtilities.invokeLater(this::loadProducts);
+    
+    /**
+     * Keep the sync status label up to date with the sale journal backlog
+     */
+    private final IntConsumer backlogListener = backlog -> SwingUtilities.invokeLater(() -> showBacklog(backlog));
+    
+    /**
+     * Warn the cashier when a journaled (already paid) sale is refused by the database
+     */
+    private final IntConsumer rejectListener = rejected -> SwingUtilities.invokeLater(() -> {
+        showBacklog(journal.getBacklog());
+        String warning = journal.getRecoveryWarning();
+        JOptionPane.showMessageDialog(this,
+            rejected + " completed sale(s) could not be saved to the database (e.g. not enough stock)\n" +
+            "and were moved to journal/sales.rejected. Please tell a manager." +
+            (warning != null ? "\n\n" + warning : ""),
+            "Sales Not Saved",
+            JOptionPane.WARNING_MESSAGE);
+    });
+    
     private JLabel addTotalLabel(JPanel panel, String text, int x, int y) {
         JLabel lbl = new JLabel(text);
         lbl.setBounds(x, y, 200, 20);
@@ -311,45 +449,91 @@ public class POSPanel extends JPanel {
         return lbl;
     }
     
+    /**
+     * Refresh the product list for the current search text (runs off the EDT)
+     */
     private void loadProducts() {
-        productModel.setRowCount(0);
-        List<Product> products = productDAO.getAllProducts();
-        for (Product product : products) {
-            if (product.getStatus().equals("active") && product.getStockQuantity() > 0) {
-                productModel.addRow(new Object[]{
-                    product.getId(),
-                    product.getBarcode(),
-                    product.getName(),
-                    Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
-                    product.getStockQuantity()
-                });
-            }
-        }
+        productSearch.submitNow(txtSearch.getText().trim());
     }
     
     private void searchProducts() {
-        String keyword = txtSearch.getText().trim();
-        if (keyword.isEmpty()) {
+        productSearch.submitNow(txtSearch.getText().trim());
+    }
+    
+    /**
+     * Empty the search box after a scan without re-listing the catalog: the
+     * search the scanned digits scheduled is dropped, and the table still
+     * shows the list it had before the scan.
+     */
+    private void clearScannedText() {
+        clearingScan = true;
+        try {
+            txtSearch.setText("");
+        } finally {
+            clearingScan = false;
+        }
+        productSearch.cancel();
+        if (!listedKeyword.isEmpty()) {
             loadProducts();
-            return;
         }
-        
+    }
+    
+    /**
+     * Worker-side query: full catalog for an empty keyword, otherwise ranked index search
+     */
+    private List<Product> queryProducts(String keyword) {
+        if (refreshRequested.getAndSet(false)) {
+            catalog.refreshChanges();
+        }
+        return keyword.isEmpty() ? catalog.getProducts() : catalog.search(keyword, SEARCH_LIMIT);
+    }
+    
+    /**
+     * EDT-side: show products that can be sold
+     */
+    private void showProducts(List<Product> products) {
+        listedKeyword = txtSearch.getText().trim();
+        productRowById.clear();
         productModel.setRowCount(0);
-        List<Product> products = productDAO.searchProducts(keyword);
         for (Product product : products) {
-            if (product.getStockQuantity() > 0) {
-                productModel.addRow(new Object[]{
-                    product.getId(),
-                    product.getBarcode(),
-                    product.getName(),
-                    Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
-                    product.getStockQuantity()
-                });
+            if ("active".equals(product.getStatus()) && product.getStockQuantity() > 0) {
+                productRowById.put(product.getId(), productModel.getRowCount());
+                productModel.addRow(productRow(product));
             }
         }
     }
     
+    private Object[] productRow(Product product) {
+        return new Object[]{
+            product.getId(),
+            product.getBarcode(),
+            product.getName(),
+            Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
+            product.getStockQuantity()
+        };
+    }
+    
+    /**
+     * Refresh the one row showing a product (if it is listed) and repaint only that row
+     */
+    @SuppressWarnings("unchecked")
+    private void updateProductRow(Product product) {
+        Integer row = productRowById.get(product.getId());
+        if (row == null) {
+            return;
+        }
+        Vector<Object> data = (Vector<Object>) productModel.getDataVector().get(row);
+        Object[] values = productRow(product);
+        for (int col = 0; col < values.length; col++) {
+            data.set(col, values[col]);
+        }
+        productModel.fireTableRowsUpdated(row, row);
+    }
+    
     private void addToCart() {
+        if (isSaving()) {
+            return;
+        }
         int selectedRow = productTable.getSelectedRow();
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select a product!");
@@ -365,31 +549,20 @@ public class POSPanel extends JPanel {
             
             int productId = (int) productModel.getValueAt(selectedRow, 0);
             String productName = (String) productModel.getValueAt(selectedRow, 2);
-            int stock = (int) productModel.getValueAt(selectedRow, 4);
             
-            if (quantity > stock) {
-                JOptionPane.showMessageDialog(this, "Insufficient stock! Available: " + stock);
+            Product product = catalog.getById(productId);
+            if (product == null) {
+                JOptionPane.showMessageDialog(this, "Product is no longer available!");
                 return;
             }
             
-            Product product = productDAO.getProductById(productId);
-            
-            // Check if product already in cart
-            boolean found = false;
-            for (SaleItem item : cartItems) {
-                if (item.getProductId() == productId) {
-                    item.setQuantity(item.getQuantity() + quantity);
-                    found = true;
-                    break;
-                }
-            }
-            
-            if (!found) {
-                SaleItem item = new SaleItem(productId, productName, quantity, product.getSellingPrice());
-                cartItems.add(item);
+            // Checked against current stock less what carts already hold, not the table's value
+            if (!reservations.reserve(cartId, productId, quantity)) {
+                JOptionPane.showMessageDialog(this, "Insufficient stock! Available: " + reservations.getAvailable(productId));
+                return;
             }
             
-            updateCartTable();
+            addItemToCart(productId, productName, product.getSellingPrice(), quantity);
             txtQuantity.setText("1");
             
         } catch (NumberFormatException e) {
@@ -397,19 +570,115 @@ public class POSPanel extends JPanel {
         }
     }
     
+    /**
+     * True if the text in the search box was typed as one scanner burst ending in Enter
+     */
+    private boolean isScannerBurst(long enterAt) {
+        return burstLength >= SCAN_MIN_LENGTH
+            && enterAt - lastKeyTypedAt <= SCAN_MAX_KEY_GAP_MS
+            && txtSearch.getText().length() == burstLength;
+    }
+    
+    /**
+     * Add one unit of the scanned product to the cart.
+     * Resolved from the in-memory barcode index; unknown barcodes fall back to the database.
+     */
+    private void scanBarcode(String barcode) {
+        if (barcode.isEmpty()) {
+            return;
+        }
+        
+        Product product = catalog.getByBarcode(barcode);
+        if (product != null) {
+            addScannedProduct(barcode, product);
+            return;
+        }
+        
+        // Not cached yet (e.g. added on another till): one exact lookup, off the EDT.
+        // Each scan gets its own key so repeated scans are never coalesced away.
+        loader.load("scan-" + System.nanoTime(), progress -> {
+            Product found = productDAO.getProductByBarcode(barcode);
+            if (found != null) {
+                catalog.put(found);
+            }
+            return found;
+        }, found -> addScannedProduct(barcode, found));
+    }
+    
+    private void addScannedProduct(String barcode, Product product) {
+        if (isSaving()) {
+            return;
+        }
+        if (product == null || !"active".equals(product.getStatus())) {
+            scanFailed("Unknown barcode: " + barcode);
+            return;
+        }
+        
+        if (!reservations.reserve(cartId, product.getId(), 1)) {
+            scanFailed("Insufficient stock for " + product.getName() + "! Available: " + reservations.getAvailable(product.getId()));
+            return;
+        }
+        
+        addItemToCart(product.getId(), product.getName(), product.getSellingPrice(), 1);
+        updateProductRow(product);
+        lblScanStatus.setForeground(new Color(39, 174, 96));
+        lblScanStatus.setText("Added: " + product.getName());
+    }
+    
+    /**
+     * Report a bad scan without a modal dialog, so the next scans are not swallowed
+     */
+    private void scanFailed(String message) {
+        Toolkit.getDefaultToolkit().beep();
+        lblScanStatus.setForeground(new Color(231, 76, 60));
+        lblScanStatus.setText(message);
+    }
+    
+    /**
+     * Add to the cart, merging with an existing line for the same product.
+     * Only the affected row is touched, so scanning stays fast with a long cart.
+     */
+    private void addItemToCart(int productId, String productName, BigDecimal unitPrice, int quantity) {
+        Integer row = cartRowByProductId.get(productId);
+        SaleItem item;
+        if (row != null) {
+            item = cartItems.get(row);
+            item.setQuantity(item.getQuantity() + quantity);
+            cartModel.setValueAt(item.getQuantity(), row, 2);
+            cartModel.setValueAt(Formatter.formatCurrency(item.getSubtotal().doubleValue()), row, 3);
+        } else {
+            item = new SaleItem(productId, productName, quantity, unitPrice);
+            cartRowByProductId.put(productId, cartItems.size());
+            cartItems.add(item);
+            cartModel.addRow(new Object[]{
+                item.getProductName(),
+                Formatter.formatCurrency(item.getUnitPrice().doubleValue()),
+                item.getQuantity(),
+                Formatter.formatCurrency(item.getSubtotal().doubleValue())
+            });
+        }
+        
+        subtotal = subtotal.add(unitPrice.multiply(new BigDecimal(quantity)));
+        updateTotals();
+    }
+    
     private void removeFromCart() {
+        if (isSaving()) {
+            return;
+        }
         int selectedRow = cartTable.getSelectedRow();
         if (selectedRow == -1) {
             JOptionPane.showMessageDialog(this, "Please select an item to remove!");
             return;
         }
         
-        cartItems.remove(selectedRow);
+        SaleItem removed = cartItems.remove(selectedRow);
+        reservations.release(cartId, removed.getProductId(), removed.getQuantity());
         updateCartTable();
     }
     
     private void clearCart() {
-        if (cartItems.isEmpty()) return;
+        if (isSaving() || cartItems.isEmpty()) return;
         
         int option = JOptionPane.showConfirmDialog(this,
             "Clear all items from cart?",
@@ -418,15 +687,18 @@ public class POSPanel extends JPanel {
         
         if (option == JOptionPane.YES_OPTION) {
             cartItems.clear();
+            reservations.releaseAll(cartId);
             updateCartTable();
         }
     }
     
     private void updateCartTable() {
         cartModel.setRowCount(0);
+        cartRowByProductId.clear();
         subtotal = BigDecimal.ZERO;
         
         for (SaleItem item : cartItems) {
+            cartRowByProductId.put(item.getProductId(), cartModel.getRowCount());
             cartModel.addRow(new Object[]{
                 item.getProductName(),
                 Formatter.formatCurrency(item.getUnitPrice().doubleValue()),
@@ -477,7 +749,69 @@ public class POSPanel extends JPanel {
         }
     }
     
+    /**
+     * Show how many completed sales are still waiting to be saved, and how many were rejected
+     */
+    private void showBacklog(int backlog) {
+        int rejected = journal.getRejectedCount();
+        String status = backlog > 0 ? backlog + " sale(s) waiting to sync" : "";
+        if (rejected > 0) {
+            status += (status.isEmpty() ? "" : "  |  ") + rejected + " sale(s) rejected, see sales.rejected";
+        }
+        lblSyncStatus.setText(status.isEmpty() ? " " : status);
+        lblSyncStatus.setForeground(rejected > 0 ? new Color(192, 57, 43) : new Color(230, 126, 34));
+    }
+    
+    /**
+     * Fail fast if the catalog (kept current by the timed refresh) no longer has enough
+     * stock for the cart, e.g. because another till sold it. Reads memory only, so
+     * checkout never waits on the database; a shortfall the catalog has not seen yet
+     * comes back as a rejected sale (see rejectListener).
+     * @return false if the cashier was told a product ran out
+     */
+    private boolean checkStock() {
+        Map<Integer, Integer> stock = new HashMap<>();
+        for (SaleItem item : cartItems) {
+            Product product = catalog.getById(item.getProductId());
+            stock.put(item.getProductId(), product != null ? product.getStockQuantity() : 0);
+        }
+        int shortId = reservations.findShortfall(cartId, stock);
+        if (shortId < 0) {
+            return true;
+        }
+        String name = "a product";
+        for (SaleItem item : cartItems) {
+            if (item.getProductId() == shortId) {
+                name = item.getProductName();
+            }
+        }
+        JOptionPane.showMessageDialog(this,
+            "Not enough stock left for " + name + " - another till has sold it.\n" +
+            "In stock: " + stock.getOrDefault(shortId, 0) + ". Please adjust the cart.",
+            "Insufficient Stock",
+            JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+    
+    /**
+     * True (and the cashier is told) while the previous sale is still being saved
+     */
+    private boolean isSaving() {
+        if (saving) {
+            scanFailed("Saving the previous sale, please wait...");
+        }
+        return saving;
+    }
+    
+    private void setSaving(boolean saving) {
+        this.saving = saving;
+        btnCheckout.setEnabled(!saving);
+    }
+    
     private void completeSale() {
+        if (isSaving()) {
+            return;
+        }
         if (cartItems.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Cart is empty!");
             return;
@@ -489,61 +823,114 @@ public class POSPanel extends JPanel {
             return;
         }
         
+        BigDecimal amountPaid;
         try {
-            BigDecimal amountPaid = new BigDecimal(amountText);
-            if (amountPaid.compareTo(total) < 0) {
-                JOptionPane.showMessageDialog(this, "Amount paid is less than total!");
-                return;
-            }
-            
-            // Create sale
-            Sale sale = new Sale();
-            sale.setInvoiceNo(saleDAO.generateInvoiceNumber());
-            sale.setUserId(SessionManager.getCurrentUser().getId());
-            sale.setSubtotal(subtotal);
-            sale.setTax(tax);
-            sale.setDiscount(discount);
-            sale.setTotalAmount(total);
-            sale.setAmountPaid(amountPaid);
-            sale.setChangeDue(amountPaid.subtract(total));
-            sale.setPaymentMethod(cboPaymentMethod.getSelectedItem().toString().toLowerCase());
-            sale.setItems(cartItems);
-            
-            boolean success = saleDAO.createSale(sale);
-            
-            if (success) {
-                String changeStr = Formatter.formatCurrency(amountPaid.subtract(total).doubleValue());
-                
-                int option = JOptionPane.showOptionDialog(this,
-                    "Sale completed successfully!\nInvoice: " + sale.getInvoiceNo() + 
-                    "\nChange: " + changeStr + "\n\nWould you like to print/export the receipt?",
-                    "Success",
-                    JOptionPane.YES_NO_OPTION,
-                    JOptionPane.INFORMATION_MESSAGE,
-                    null,
-                    new String[]{"Print/Export Receipt", "Close"},
-                    "Print/Export Receipt");
-                
-                if (option == JOptionPane.YES_OPTION) {
-                    ReceiptGenerator.exportToTextFile(this, sale);
-                }
-                
-                // Reset form
-                cartItems.clear();
-                updateCartTable();
-                txtAmountPaid.setText("");
-                txtDiscount.setText("0.00");
-                cboPaymentMethod.setSelectedIndex(0);
-                loadProducts();
-            } else {
+            amountPaid = new BigDecimal(amountText);
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Invalid amount!");
+            return;
+        }
+        if (amountPaid.compareTo(total) < 0) {
+            JOptionPane.showMessageDialog(this, "Amount paid is less than total!");
+            return;
+        }
+        
+        // Normally taken from the block leased in the background; only if none is
+        // leased yet is a number allocated from the database, off the EDT
+        String invoiceNo = saleDAO.takeLeasedInvoiceNumber();
+        if (invoiceNo != null) {
+            checkout(invoiceNo, amountPaid);
+            return;
+        }
+        setSaving(true);
+        loader.load("invoice", progress -> saleDAO.generateInvoiceNumber(), number -> {
+            setSaving(false);
+            if (number == null) {
                 JOptionPane.showMessageDialog(this,
-                    "Failed to complete sale!",
+                    "Cannot allocate an invoice number - check the database connection.",
                     "Error",
                     JOptionPane.ERROR_MESSAGE);
+                return;
             }
-            
-        } catch (NumberFormatException e) {
-            JOptionPane.showMessageDialog(this, "Invalid amount!");
+            checkout(number, amountPaid);
+        }, e -> {
+            setSaving(false);
+            e.printStackTrace();
+        });
+    }
+    
+    private void checkout(String invoiceNo, BigDecimal amountPaid) {
+        // Create sale
+        Sale sale = new Sale();
+        sale.setInvoiceNo(invoiceNo);
+        sale.setUserId(SessionManager.getCurrentUser().getId());
+        sale.setSubtotal(subtotal);
+        sale.setTax(tax);
+        sale.setDiscount(discount);
+        sale.setTotalAmount(total);
+        sale.setAmountPaid(amountPaid);
+        sale.setChangeDue(amountPaid.subtract(total));
+        sale.setPaymentMethod(cboPaymentMethod.getSelectedItem().toString().toLowerCase());
+        sale.setItems(cartItems);
+        
+        if (!checkStock()) {
+            return;
+        }
+        
+        // The cart's stock holds now belong to the invoice until the sale is committed
+        reservations.transfer(cartId, invoiceNo);
+        
+        // Durable in the local journal first; saved to the database in the background
+        if (journal.append(sale)) {
+            saleCompleted(sale);
+            return;
         }
+        
+        // Journal unavailable: save directly, waiting for the commit off the EDT.
+        // The cart is locked meanwhile, since the sale shares its item list.
+        String soldCart = cartId;
+        setSaving(true);
+        saleDAO.createSaleAsync(sale).whenComplete((saved, error) -> SwingUtilities.invokeLater(() -> {
+            setSaving(false);
+            if (error == null && Boolean.TRUE.equals(saved)) {
+                saleCompleted(sale);
+                return;
+            }
+            if (error != null) {
+                error.printStackTrace();
+            }
+            reservations.cancelTransfer(invoiceNo, soldCart);
+            JOptionPane.showMessageDialog(this,
+                "Failed to complete sale!",
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+        }));
+    }
+    
+    private void saleCompleted(Sale sale) {
+        String changeStr = Formatter.formatCurrency(sale.getChangeDue().doubleValue());
+        
+        int option = JOptionPane.showOptionDialog(this,
+            "Sale completed successfully!\nInvoice: " + sale.getInvoiceNo() + 
+            "\nChange: " + changeStr + "\n\nWould you like to print/export the receipt?",
+            "Success",
+            JOptionPane.YES_NO_OPTION,
+            JOptionPane.INFORMATION_MESSAGE,
+            null,
+            new String[]{"Print/Export Receipt", "Close"},
+            "Print/Export Receipt");
+        
+        if (option == JOptionPane.YES_OPTION) {
+            ReceiptGenerator.exportToTextFile(this, sale);
+        }
+        
+        // Reset form (the sale keeps the old item list)
+        cartItems = new ArrayList<>();
+        cartId = UUID.randomUUID().toString();
+        updateCartTable();
+        txtAmountPaid.setText("");
+        txtDiscount.setText("0.00");
+        cboPaymentMethod.setSelectedIndex(0);
+        loadProducts();
     }
 }
@@ -1,5 +1,6 @@
 package com.pcsale.gui;
 
+import com.pcsale.dao.ProductCatalog;
 import com.pcsale.dao.ProductDAO;
 import com.pcsale.dao.CategoryDAO;
 import com.pcsale.model.Product;
@@ -16,22 +17,35 @@ import java.math.BigDecimal;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * ProductPanel - Product management interface
  */
 public class ProductPanel extends JPanel {
     
+    private static final int SEARCH_LIMIT = 50;
+    private static final int THUMBNAIL_SIZE = 50;
+    
+    // Scaled table thumbnails by image path (image files are never overwritten in place)
+    private static final Map<String, ImageIcon> thumbnails = new ConcurrentHashMap<>();
+    
     private JTable table;
     private DefaultTableModel tableModel;
     private JTextField txtSearch;
     private ProductDAO productDAO;
     private CategoryDAO categoryDAO;
+    private ProductCatalog catalog;
+    private BackgroundLoader loader;
     
     public ProductPanel() {
         productDAO = new ProductDAO();
         categoryDAO = new CategoryDAO();
+        catalog = ProductCatalog.getInstance();
+        loader = new BackgroundLoader(this);
         initComponents();
         loadProducts();
     }
@@ -66,7 +80,10 @@ public class ProductPanel extends JPanel {
         btnRefresh.setBackground(new Color(149, 165, 166));
         btnRefresh.setForeground(Color.WHITE);
         btnRefresh.setFocusPainted(false);
-        btnRefresh.addActionListener(e -> loadProducts());
+        btnRefresh.addActionListener(e -> showRows(progress -> {
+            catalog.refreshChanges();
+            return catalog.getProducts();
+        }));
         
         searchPanel.add(lblSearch);
         searchPanel.add(txtSearch);
@@ -146,23 +163,88 @@ public class ProductPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        catalog.addChangeListener(catalogListener);
+    }
+    
+    @Override
+    public void removeNotify() {
+        catalog.removeChangeListener(catalogListener);
+        super.removeNotify();
+    }
+    
+    /**
+     * Reload the table when the timed catalog refresh pulls in changes
+     */
+    private final Runnable catalogListener = () -> SwingUtilities.invokeLater(() -> {
+        if (txtSearch.getText().trim().isEmpty()) {
+            loadProducts();
+        }
+    });
+    
     private void loadProducts() {
-        tableModel.setRowCount(0);
-        List<Product> products = productDAO.getAllProducts();
-        for (Product product : products) {
-            ImageIcon icon = getScaledImage(product.getImage(), 50, 50);
-            tableModel.addRow(new Object[]{
-                icon,
-                product.getId(),
-                product.getBarcode(),
-                product.getName(),
-                product.getCategoryName() != null ? product.getCategoryName() : "-",
-                Formatter.formatCurrency(product.getCostPrice().doubleValue()),
-                Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
-                product.getStockQuantity(),
-                product.getStatus()
-            });
+        showRows(progress -> catalog.getProducts());
+    }
+    
+    private void searchProducts() {
+        String keyword = txtSearch.getText().trim();
+        if (keyword.isEmpty()) {
+            loadProducts();
+            return;
+        }
+        
+        showRows(progress -> catalog.search(keyword, SEARCH_LIMIT));
+    }
+    
+    private void showLowStock() {
+        showRows(progress -> productDAO.getLowStockProducts());
+    }
+    
+    /**
+     * Fetch products and build the table rows (including thumbnails) in the background,
+     * then swap them into the table on the EDT
+     */
+    private void showRows(BackgroundLoader.Job<List<Product>> query) {
+        loader.load("products", progress -> {
+            List<Product> products = query.run(progress);
+            List<Object[]> rows = new ArrayList<>(products.size());
+            for (Product product : products) {
+                if (progress.isCancelled()) {
+                    break;
+                }
+                rows.add(new Object[]{
+                    getThumbnail(product.getImage()),
+                    product.getId(),
+                    product.getBarcode(),
+                    product.getName(),
+                    product.getCategoryName() != null ? product.getCategoryName() : "-",
+                    Formatter.formatCurrency(product.getCostPrice().doubleValue()),
+                    Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
+                    product.getStockQuantity(),
+                    product.getStatus()
+                });
+            }
+            return rows;
+        }, rows -> {
+            tableModel.setRowCount(0);
+            for (Object[] row : rows) {
+                tableModel.addRow(row);
+            }
+        });
+    }
+    
+    private ImageIcon getThumbnail(String path) {
+        if (path == null || path.isEmpty()) return null;
+        ImageIcon icon = thumbnails.get(path);
+        if (icon == null) {
+            icon = getScaledImage(path, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+            if (icon != null) {
+                thumbnails.put(path, icon);
+            }
         }
+        return icon;
     }
 
     private ImageIcon getScaledImage(String path, int width, int height) {
@@ -180,46 +262,6 @@ public class ProductPanel extends JPanel {
         }
     }
     
-    private void searchProducts() {
-        String keyword = txtSearch.getText().trim();
-        if (keyword.isEmpty()) {
-            loadProducts();
-            return;
-        }
-        
-        tableModel.setRowCount(0);
-        List<Product> products = productDAO.searchProducts(keyword);
-        for (Product product : products) {
-            tableModel.addRow(new Object[]{
-                product.getId(),
-                product.getBarcode(),
-                product.getName(),
-                product.getCategoryName() != null ? product.getCategoryName() : "-",
-                Formatter.formatCurrency(product.getCostPrice().doubleValue()),
-                Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
-                product.getStockQuantity(),
-                product.getStatus()
-            });
-        }
-    }
-    
-    private void showLowStock() {
-        tableModel.setRowCount(0);
-        List<Product> products = productDAO.getLowStockProducts();
-        for (Product product : products) {
-            tableModel.addRow(new Object[]{
-                product.getId(),
-                product.getBarcode(),
-                product.getName(),
-                product.getCategoryName() != null ? product.getCategoryName() : "-",
-                Formatter.formatCurrency(product.getCostPrice().doubleValue()),
-                Formatter.formatCurrency(product.getSellingPrice().doubleValue()),
-                product.getStockQuantity(),
-                product.getStatus()
-            });
-        }
-    }
-    
     private void showAddDialog() {
         ProductDialog dialog = new ProductDialog((Frame) SwingUtilities.getWindowAncestor(this), null);
         dialog.setVisible(true);
@@ -235,7 +277,7 @@ public class ProductPanel extends JPanel {
             return;
         }
         
-        int productId = (int) tableModel.getValueAt(selectedRow, 0);
+        int productId = (int) tableModel.getValueAt(selectedRow, 1);
         Product product = productDAO.getProductById(productId);
         
         ProductDialog dialog = new ProductDialog((Frame) SwingUtilities.getWindowAncestor(this), product);
@@ -258,7 +300,7 @@ public class ProductPanel extends JPanel {
             JOptionPane.YES_NO_OPTION);
         
         if (option == JOptionPane.YES_OPTION) {
-            int productId = (int) tableModel.getValueAt(selectedRow, 0);
+            int productId = (int) tableModel.getValueAt(selectedRow, 1);
             boolean success = productDAO.deleteProduct(productId);
             
             if (success) {
@@ -474,7 +516,7 @@ public class ProductPanel extends JPanel {
             }
             
             try {
-                Product p = product != null ? product : new Product();
+                Product p = product != null ? new Product(product) : new Product(); // never edit the cached object
                 p.setBarcode(txtBarcode.getText().trim());
                 p.setName(txtName.getText().trim());
                 
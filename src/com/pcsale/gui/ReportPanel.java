@@ -1,11 +1,11 @@
 package com.pcsale.gui;
 
+import com.pcsale.dao.LiveSalesStats;
 import com.pcsale.dao.SaleDAO;
 import com.pcsale.util.Formatter;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 /**
  * ReportPanel - Sales reports and analytics
@@ -13,10 +13,15 @@ import java.util.List;
 public class ReportPanel extends JPanel {
     
     private SaleDAO saleDAO;
+    private BackgroundLoader loader;
+    private JLabel lblTodaySales;
+    private SalesChartPanel chart;
     
     public ReportPanel() {
         saleDAO = new SaleDAO();
+        loader = new BackgroundLoader(this);
         initComponents();
+        loadReports();
     }
     
     private void initComponents() {
@@ -36,25 +41,32 @@ public class ReportPanel extends JPanel {
         summaryPanel.setBackground(new Color(245, 245, 245));
         summaryPanel.setBorder(BorderFactory.createTitledBorder("Quick Summary"));
         
-        double todayTotal = saleDAO.getTodaySalesTotal();
-        summaryPanel.add(createStatLabel("Today's Sales:", Formatter.formatCurrency(todayTotal)));
+        lblTodaySales = new JLabel("...");
+        summaryPanel.add(createStatLabel("Today's Sales:", lblTodaySales));
         
         mainPanel.add(summaryPanel);
         
         // Chart Panel
-        List<Object[]> salesData = saleDAO.getDailySalesData(30);
-        SalesChartPanel chart = new SalesChartPanel("Last 30 Days Sales", salesData, "Date", "Amount", SalesChartPanel.ChartType.LINE);
+        chart = new SalesChartPanel("Last 30 Days Sales", null, "Date", "Amount", SalesChartPanel.ChartType.LINE);
         mainPanel.add(chart);
         
         add(mainPanel, BorderLayout.CENTER);
     }
     
-    private JPanel createStatLabel(String title, String value) {
+    private void loadReports() {
+        loader.load("today", progress -> {
+            LiveSalesStats liveStats = LiveSalesStats.getInstance();
+            liveStats.ensureSeeded();
+            return liveStats.getSnapshot();
+        }, today -> lblTodaySales.setText(Formatter.formatCurrency(today.getSalesTotal())));
+        loader.load("chart", progress -> saleDAO.getDailySalesData(30), chart::setData);
+    }
+    
+    private JPanel createStatLabel(String title, JLabel v) {
         JPanel p = new JPanel(new BorderLayout());
         p.setBackground(new Color(245, 245, 245));
         JLabel t = new JLabel(title);
         t.setFont(new Font("Arial", Font.PLAIN, 14));
-        JLabel v = new JLabel(value);
         v.setFont(new Font("Arial", Font.BOLD, 20));
         v.setForeground(new Color(46, 213, 115));
         p.add(t, BorderLayout.NORTH);
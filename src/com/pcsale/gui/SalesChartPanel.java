@@ -69,6 +69,15 @@ public class SalesChartPanel extends JPanel {
         repaint();
     }
 
+    /**
+     * Replace the chart data (e.g. once a background load finishes)
+     */
+    public void setData(List<Object[]> data) {
+        this.data = data;
+        this.hoveredIndex = -1;
+        repaint();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
@@ -8,11 +8,12 @@ import com.pcsale.util.ReceiptGenerator;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -20,17 +21,23 @@ import java.util.List;
  */
 public class SalesHistoryPanel extends JPanel {
     
+    private static final int SEARCH_DEBOUNCE_MS = 250;
+    
     private SaleDAO saleDAO;
     private JTable salesTable;
-    private DefaultTableModel tableModel;
+    private SalesTableModel tableModel;
     private JTextField txtSearch;
     private JComboBox<String> cmbPeriod;
     private JLabel lblTotalSales;
     private JLabel lblTotalAmount;
-    private List<Sale> currentSales;
+    private BackgroundLoader loader;
+    private Timer searchTimer;
     
     public SalesHistoryPanel() {
         saleDAO = new SaleDAO();
+        loader = new BackgroundLoader(this);
+        searchTimer = new Timer(SEARCH_DEBOUNCE_MS, e -> searchSales());
+        searchTimer.setRepeats(false);
         initComponents();
         loadSales();
     }
@@ -93,7 +100,8 @@ public class SalesHistoryPanel extends JPanel {
         txtSearch.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                filterTable();
+                // Search once typing pauses, not on every keystroke
+                searchTimer.restart();
             }
         });
         filterPanel.add(txtSearch);
@@ -112,14 +120,8 @@ public class SalesHistoryPanel extends JPanel {
         tablePanel.setBackground(Color.WHITE);
         tablePanel.setBorder(BorderFactory.createEmptyBorder(0, 20, 20, 20));
         
-        String[] columns = {"Invoice No", "Date", "Customer", "Cashier", "Items", "Subtotal", 
-                           "Tax", "Discount", "Total", "Payment"};
-        tableModel = new DefaultTableModel(columns, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Rows are fetched page by page as they scroll into view
+        tableModel = new SalesTableModel(saleDAO, loader);
         
         salesTable = new JTable(tableModel);
         salesTable.setFont(new Font("Arial", Font.PLAIN, 13));
@@ -127,7 +129,7 @@ public class SalesHistoryPanel extends JPanel {
         salesTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 13));
         salesTable.getTableHeader().setBackground(new Color(52, 73, 94));
         salesTable.getTableHeader().setForeground(Color.BLACK);
-        salesTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        salesTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
         salesTable.setSelectionBackground(new Color(52, 152, 219, 100));
         
         // Set column widths
@@ -190,15 +192,9 @@ public class SalesHistoryPanel extends JPanel {
         btnPrintReceipt.setFocusPainted(false);
         btnPrintReceipt.setCursor(new Cursor(Cursor.HAND_CURSOR));
         btnPrintReceipt.addActionListener(e -> {
-            int row = salesTable.getSelectedRow();
-            if (row != -1) {
-                int modelRow = salesTable.convertRowIndexToModel(row);
-                Sale sale = currentSales.get(modelRow);
-                // Ensure items are loaded (SaleDAO might not load them by default in list view)
-                if (sale.getItems() == null || sale.getItems().isEmpty()) {
-                    sale.setItems(saleDAO.getSaleItems(sale.getId()));
-                }
-                ReceiptGenerator.exportToTextFile(this, sale);
+            int[] rows = salesTable.getSelectedRows();
+            if (rows.length > 0) {
+                printReceipts(rows);
             } else {
                 JOptionPane.showMessageDialog(this, 
                     "Please select a sale to print receipt", 
@@ -219,9 +215,26 @@ public class SalesHistoryPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
     }
     
-    private void loadSales() {
-        tableModel.setRowCount(0);
+    /**
+     * Apply the search box: narrow the loaded rows in memory when possible, otherwise query
+     */
+    private void searchSales() {
+        String keyword = txtSearch.getText().trim();
+        if (keyword.equals(tableModel.getKeyword())) {
+            return;
+        }
         
+        Object[] summary = tableModel.filterLoaded(keyword);
+        if (summary == null) {
+            loadSales();
+            return;
+        }
+        lblTotalSales.setText("Total Sales: " + summary[0]);
+        lblTotalAmount.setText("Total Amount: " + Formatter.formatCurrency((Double) summary[1]));
+    }
+    
+    private void loadSales() {
+        searchTimer.stop();
         LocalDateTime startDate = null;
         LocalDateTime endDate = LocalDateTime.now();
         
@@ -245,74 +258,87 @@ public class SalesHistoryPanel extends JPanel {
                 break;
         }
         
-        currentSales = saleDAO.getSalesByDateRange(startDate, endDate);
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        double totalAmount = 0;
-        
-        for (Sale sale : currentSales) {
-            Object[] row = {
-                sale.getInvoiceNo(),
-                sale.getSaleDate().format(formatter),
-                sale.getCustomerName() != null ? sale.getCustomerName() : "Walk-in",
-                sale.getUserName(),
-                sale.getItems() != null ? sale.getItems().size() : 0,
-                Formatter.formatCurrency(sale.getSubtotal().doubleValue()),
-                Formatter.formatCurrency(sale.getTax().doubleValue()),
-                Formatter.formatCurrency(sale.getDiscount().doubleValue()),
-                Formatter.formatCurrency(sale.getTotalAmount().doubleValue()),
-                sale.getPaymentMethod().toUpperCase()
-            };
-            tableModel.addRow(row);
-            totalAmount += sale.getTotalAmount().doubleValue();
-        }
-        
-        lblTotalSales.setText("Total Sales: " + currentSales.size());
-        lblTotalAmount.setText("Total Amount: " + Formatter.formatCurrency(totalAmount));
+        LocalDateTime from = startDate;
+        LocalDateTime to = endDate;
+        String keyword = txtSearch.getText().trim();
+        
+        // Totals come from one summary query; the rows themselves load as they are scrolled to
+        int view = tableModel.reset(from, to, keyword);
+        lblTotalSales.setText("Loading...");
+        loader.load("summary", progress -> saleDAO.getSalesSummary(from, to, keyword), summary -> {
+            if (summary == null) {
+                lblTotalSales.setText("Total Sales: -");
+                return;
+            }
+            tableModel.setSummary(view, (Integer) summary[0], (Long) summary[2]);
+            lblTotalSales.setText("Total Sales: " + summary[0]);
+            lblTotalAmount.setText("Total Amount: " + Formatter.formatCurrency((Double) summary[1]));
+        });
     }
     
-    private void filterTable() {
-        String searchText = txtSearch.getText().toLowerCase();
-        
-        if (searchText.trim().isEmpty()) {
-            salesTable.setRowSorter(null);
-            return;
+    private void viewSaleDetails(int row) {
+        Sale sale = tableModel.getSaleAt(salesTable.convertRowIndexToModel(row));
+        if (sale == null) {
+            return; // row still loading
         }
         
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(tableModel);
-        salesTable.setRowSorter(sorter);
-        
-        RowFilter<DefaultTableModel, Object> filter = new RowFilter<DefaultTableModel, Object>() {
-            @Override
-            public boolean include(Entry<? extends DefaultTableModel, ? extends Object> entry) {
-                for (int i = 0; i < entry.getValueCount(); i++) {
-                    if (entry.getStringValue(i).toLowerCase().contains(searchText)) {
-                        return true;
-                    }
-                }
-                return false;
+        // The header is already loaded with the page; only the items are fetched
+        loader.load("details", progress -> saleDAO.getSaleItemsBySaleIds(Collections.singletonList(sale.getId())), items -> {
+            if (items == null) {
+                JOptionPane.showMessageDialog(this, 
+                    "Error loading sale details", 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
             }
-        };
-        
-        sorter.setRowFilter(filter);
+            
+            sale.setItems(items.get(sale.getId()));
+            showSaleDetailsDialog(sale);
+        });
     }
     
-    private void viewSaleDetails(int row) {
-        int modelRow = salesTable.convertRowIndexToModel(row);
-        Sale sale = currentSales.get(modelRow);
-        
-        // Fetch full sale details with items
-        Sale fullSale = saleDAO.getSaleById(sale.getId());
-        
-        if (fullSale == null) {
-            JOptionPane.showMessageDialog(this, 
-                "Error loading sale details", 
-                "Error", 
-                JOptionPane.ERROR_MESSAGE);
+    /**
+     * Export receipts for the selected rows, loading the items of all of them in one query
+     */
+    private void printReceipts(int[] rows) {
+        List<Sale> sales = new ArrayList<>();
+        List<Integer> missingItems = new ArrayList<>();
+        for (int row : rows) {
+            Sale sale = tableModel.getSaleAt(salesTable.convertRowIndexToModel(row));
+            if (sale == null) {
+                continue; // row still loading
+            }
+            sales.add(sale);
+            if (sale.getItems() == null || sale.getItems().isEmpty()) {
+                missingItems.add(sale.getId());
+            }
+        }
+        if (sales.isEmpty()) {
             return;
         }
         
-        showSaleDetailsDialog(fullSale);
+        loader.load("receipt", progress -> missingItems.isEmpty()
+                ? Collections.<Integer, List<SaleItem>>emptyMap()
+                : saleDAO.getSaleItemsBySaleIds(missingItems), items -> {
+            if (items == null) {
+                JOptionPane.showMessageDialog(this, 
+                    "Error loading sale items", 
+                    "Error", 
+                    JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            for (Sale sale : sales) {
+                if (items.containsKey(sale.getId())) {
+                    sale.setItems(items.get(sale.getId()));
+                }
+            }
+            
+            if (sales.size() == 1) {
+                ReceiptGenerator.exportToTextFile(this, sales.get(0));
+            } else {
+                ReceiptGenerator.exportAllToFolder(this, sales);
+            }
+        });
     }
     
     private void showSaleDetailsDialog(Sale sale) {
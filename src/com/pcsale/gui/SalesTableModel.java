@@ -0,0 +1,285 @@
+package com.pcsale.gui;
+
+import com.pcsale.dao.SaleDAO;
+import com.pcsale.model.Sale;
+import com.pcsale.util.Formatter;
+
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SalesTableModel - Sales history table that loads pages as they are scrolled into view
+ *
+ * The row count comes from one summary query; rows are fetched a page at a
+ * time, newest first, by seeking past the (sale_date, id) of the previous
+ * page. Only the most recently viewed pages are kept, so memory does not
+ * grow with the size of the sales history. Rows that are not loaded yet
+ * show as "Loading...". When the whole view fits in one loaded page, a
+ * search that extends the current keyword is filtered in memory instead.
+ */
+public class SalesTableModel extends AbstractTableModel {
+
+    public static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+
+    private static final String[] COLUMNS = {"Invoice No", "Date", "Customer", "Cashier", "Items", "Subtotal",
+                                             "Tax", "Discount", "Total", "Payment"};
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final SaleDAO saleDAO;
+    private final BackgroundLoader loader;
+
+    // Current query
+    private LocalDateTime startDate;
+    private LocalDateTime endDate;
+    private String keyword;
+    private long maxId;
+    private int rowCount = 0;
+    private int generation = 0;
+
+    // Loaded pages (most recently used last) and the last key of every page seen so far
+    private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, Sale> pageEndKeys = new HashMap<>();
+
+    public SalesTableModel(SaleDAO saleDAO, BackgroundLoader loader) {
+        this.saleDAO = saleDAO;
+        this.loader = loader;
+    }
+
+    /**
+     * Show a new period / search. Must be followed by setSummary once the summary is loaded.
+     * @return id of this view, to pass to setSummary
+     */
+    public int reset(LocalDateTime startDate, LocalDateTime endDate, String keyword) {
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.keyword = keyword;
+        this.rowCount = 0;
+        this.generation++;
+        pages.clear();
+        pageEndKeys.clear();
+        fireTableDataChanged();
+        return generation;
+    }
+
+    /**
+     * Set the row count and the newest sale id included in this view (ignored if the view changed since)
+     */
+    public void setSummary(int view, int count, long maxId) {
+        if (view != generation) {
+            return;
+        }
+        this.rowCount = count;
+        this.maxId = maxId;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Keyword of the current view ("" for none)
+     */
+    public String getKeyword() {
+        return keyword != null ? keyword : "";
+    }
+
+    /**
+     * Narrow the current view in memory, without a query, when every row of it is
+     * loaded and the new keyword extends the current one (the usual case while typing).
+     * Rows are matched the same way as SaleDAO matches them.
+     * @return {count (Integer), total (Double)} of the new view, or null if the search must go to the database
+     */
+    public Object[] filterLoaded(String keyword) {
+        Page page = pages.get(0);
+        String current = getKeyword().toLowerCase();
+        String search = keyword.toLowerCase();
+        if (page == null || rowCount > PAGE_SIZE || rowCount != page.sales.size() || !search.startsWith(current)) {
+            return null;
+        }
+        if (SaleDAO.isPaymentMethod(search) && !current.isEmpty() && !search.equals(current)) {
+            return null; // an exact method match can add rows the current view does not have
+        }
+
+        Page filtered = page.filter(search);
+        this.keyword = keyword;
+        this.rowCount = filtered.sales.size();
+        this.generation++;
+        pages.clear();
+        pageEndKeys.clear();
+        pages.put(0, filtered);
+        fireTableDataChanged();
+
+        double total = 0;
+        for (Sale sale : filtered.sales) {
+            total += sale.getTotalAmount().doubleValue();
+        }
+        return new Object[]{filtered.sales.size(), total};
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Page page = pages.get(row / PAGE_SIZE);
+        if (page == null) {
+            requestPage(row / PAGE_SIZE);
+            return column == 0 ? "Loading..." : null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < page.rows.size() ? page.rows.get(index)[column] : null;
+    }
+
+    /**
+     * The sale shown in a row, or null if its page is not loaded
+     */
+    public Sale getSaleAt(int row) {
+        Page page = pages.get(row / PAGE_SIZE);
+        if (page == null || row % PAGE_SIZE >= page.sales.size()) {
+            return null;
+        }
+        return page.sales.get(row % PAGE_SIZE);
+    }
+
+    private void requestPage(int pageNo) {
+        String key = "page-" + generation + "-" + pageNo;
+        if (loader.isLoading(key)) {
+            return;
+        }
+
+        int gen = generation;
+        LocalDateTime from = startDate;
+        LocalDateTime to = endDate;
+        String search = keyword;
+        long max = maxId;
+        Sale previous = pageNo > 0 ? pageEndKeys.get(pageNo - 1) : null;
+        LocalDateTime afterDate = previous != null ? previous.getSaleDate() : null;
+        int afterId = previous != null ? previous.getId() : 0;
+
+        loader.load(key, progress -> {
+            List<Sale> sales;
+            if (pageNo == 0 || previous != null) {
+                sales = saleDAO.getSalesPage(from, to, search, max, afterDate, afterId, PAGE_SIZE);
+            } else {
+                sales = saleDAO.getSalesPageAt(from, to, search, max, pageNo * PAGE_SIZE, PAGE_SIZE);
+            }
+            if (sales == null) {
+                return null;
+            }
+            List<Integer> ids = new ArrayList<>(sales.size());
+            for (Sale sale : sales) {
+                ids.add(sale.getId());
+            }
+            // Item counts for the whole page in one grouped query
+            return new Page(sales, ids.isEmpty() ? new HashMap<>() : saleDAO.getItemCounts(ids));
+        }, page -> {
+            if (gen != generation || page == null) {
+                return;
+            }
+            pages.put(pageNo, page);
+            if (!page.sales.isEmpty()) {
+                pageEndKeys.put(pageNo, page.sales.get(page.sales.size() - 1));
+            }
+
+            int first = pageNo * PAGE_SIZE;
+            if (page.sales.size() < PAGE_SIZE && first + page.sales.size() < rowCount) {
+                // Fewer sales than the summary counted (e.g. some were deleted): trim the table
+                rowCount = first + page.sales.size();
+                fireTableDataChanged();
+            } else {
+                fireTableRowsUpdated(first, Math.min(first + PAGE_SIZE, rowCount) - 1);
+            }
+        });
+    }
+
+    /**
+     * One page of sales with its table rows formatted off the EDT
+     */
+    private static class Page {
+        private final List<Sale> sales;
+        private final List<Object[]> rows;
+        // Lowercase {invoice, customer, cashier, payment} per row (customer null for walk-ins)
+        private final List<String[]> searchKeys;
+
+        private Page(List<Sale> sales, List<Object[]> rows, List<String[]> searchKeys) {
+            this.sales = sales;
+            this.rows = rows;
+            this.searchKeys = searchKeys;
+        }
+
+        /**
+         * Rows matching a lowercase keyword by SaleDAO's rules: a prefix of the invoice
+         * number, customer name or cashier name, or exactly the payment method.
+         */
+        Page filter(String keyword) {
+            boolean method = SaleDAO.isPaymentMethod(keyword);
+            List<Sale> matchedSales = new ArrayList<>();
+            List<Object[]> matchedRows = new ArrayList<>();
+            List<String[]> matchedKeys = new ArrayList<>();
+            for (int i = 0; i < sales.size(); i++) {
+                String[] key = searchKeys.get(i);
+                boolean matches = key[0].startsWith(keyword)
+                    || (key[1] != null && key[1].startsWith(keyword))
+                    || key[2].startsWith(keyword)
+                    || (method && key[3].equals(keyword.trim()));
+                if (matches) {
+                    matchedSales.add(sales.get(i));
+                    matchedRows.add(rows.get(i));
+                    matchedKeys.add(key);
+                }
+            }
+            return new Page(matchedSales, matchedRows, matchedKeys);
+        }
+
+        Page(List<Sale> sales, Map<Integer, Integer> itemCounts) {
+            this.sales = sales;
+            this.rows = new ArrayList<>(sales.size());
+            this.searchKeys = new ArrayList<>(sales.size());
+            for (Sale sale : sales) {
+                searchKeys.add(new String[]{
+                    lower(sale.getInvoiceNo()),
+                    sale.getCustomerName() != null ? lower(sale.getCustomerName()) : null,
+                    lower(sale.getUserName()),
+                    lower(sale.getPaymentMethod())
+                });
+                rows.add(new Object[]{
+                    sale.getInvoiceNo(),
+                    sale.getSaleDate().format(DATE_FORMAT),
+                    sale.getCustomerName() != null ? sale.getCustomerName() : "Walk-in",
+                    sale.getUserName(),
+                    itemCounts.getOrDefault(sale.getId(), 0),
+                    Formatter.formatCurrency(sale.getSubtotal().doubleValue()),
+                    Formatter.formatCurrency(sale.getTax().doubleValue()),
+                    Formatter.formatCurrency(sale.getDiscount().doubleValue()),
+                    Formatter.formatCurrency(sale.getTotalAmount().doubleValue()),
+                    sale.getPaymentMethod().toUpperCase()
+                });
+            }
+        }
+
+        private static String lower(String text) {
+            return text != null ? text.toLowerCase() : "";
+        }
+    }
+}
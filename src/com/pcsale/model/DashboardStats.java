@@ -0,0 +1,56 @@
+package com.pcsale.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DashboardStats Model Class
+ * Represents the catalog counts and sales chart shown on the main dashboard
+ * (today's sales come from LiveSalesStats)
+ */
+public class DashboardStats {
+    private int totalProducts;
+    private int totalCustomers;
+    private int lowStockCount;
+    private List<Object[]> dailySales = new ArrayList<>();
+
+    // Constructors
+    public DashboardStats() {
+    }
+
+    // Getters and Setters
+    public int getTotalProducts() {
+        return totalProducts;
+    }
+
+    public void setTotalProducts(int totalProducts) {
+        this.totalProducts = totalProducts;
+    }
+
+    public int getTotalCustomers() {
+        return totalCustomers;
+    }
+
+    public void setTotalCustomers(int totalCustomers) {
+        this.totalCustomers = totalCustomers;
+    }
+
+    public int getLowStockCount() {
+        return lowStockCount;
+    }
+
+    public void setLowStockCount(int lowStockCount) {
+        this.lowStockCount = lowStockCount;
+    }
+
+    /**
+     * Daily rows of {date, sales count, total} as returned by SaleDAO.getDailySalesData
+     */
+    public List<Object[]> getDailySales() {
+        return dailySales;
+    }
+
+    public void setDailySales(List<Object[]> dailySales) {
+        this.dailySales = dailySales;
+    }
+}
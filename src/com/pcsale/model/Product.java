@@ -41,6 +41,28 @@ public class Product {
         this.sellingPrice = sellingPrice;
     }
     
+    /**
+     * Copy of another product (used to replace cached products instead of mutating them)
+     */
+    public Product(Product other) {
+        this.id = other.id;
+        this.barcode = other.barcode;
+        this.name = other.name;
+        this.categoryId = other.categoryId;
+        this.categoryName = other.categoryName;
+        this.supplierId = other.supplierId;
+        this.supplierName = other.supplierName;
+        this.costPrice = other.costPrice;
+        this.sellingPrice = other.sellingPrice;
+        this.stockQuantity = other.stockQuantity;
+        this.reorderLevel = other.reorderLevel;
+        this.unit = other.unit;
+        this.image = other.image;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
     // Getters and Setters
     public int getId() {
         return id;
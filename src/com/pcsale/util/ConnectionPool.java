@@ -0,0 +1,411 @@
+package com.pcsale.util;
+
+import java.awt.EventQueue;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ConnectionPool - Bounded, thread-safe pool of MySQL connections
+ *
+ * Connections handed out are proxies: calling close() returns the physical
+ * connection to the pool instead of closing the socket, so existing
+ * try-with-resources blocks in the DAOs work unchanged. Each physical
+ * connection also keeps a StatementCache so hot SQL is prepared once.
+ * Every borrow is timed into Metrics: the wait for a connection
+ * ("db.acquire") and how long the caller held it, named after the DAO
+ * method that borrowed it (e.g. "dao.ProductDAO.searchProducts"). Borrows
+ * on the Swing event thread are also recorded as "edt.dao". Statements
+ * go through SlowQueryLog, which times them when it is enabled.
+ */
+public class ConnectionPool {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final long leakThresholdMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final Metrics metrics = Metrics.getInstance();
+    private final SlowQueryLog slowQueries = SlowQueryLog.getInstance();
+    private volatile boolean closed = false;
+
+    public ConnectionPool(String url, String user, String password, int maxSize,
+                          long borrowTimeoutMillis, long idleTimeoutMillis,
+                          long maxLifetimeMillis, long leakThresholdMillis,
+                          int statementCacheSize) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.validationIntervalMillis = 5000;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pcsale-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout for one to free up
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                metrics.increment("db.acquire.timeouts");
+                throw new SQLException("Timed out after " + borrowTimeoutMillis +
+                                       "ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdleOrCreate();
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowTrace = new Throwable("Connection borrowed here");
+            pooled.leakReported = false;
+            pooled.onEventThread = EventQueue.isDispatchThread();
+            borrowed.add(pooled);
+            borrowCount.incrementAndGet();
+            pooled.borrowedNanos = System.nanoTime();
+            metrics.record("db.acquire", pooled.borrowedNanos - waitStart);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (now - pooled.createdAt > maxLifetimeMillis) {
+                pooled.closePhysical();
+                continue;
+            }
+            if (now - pooled.lastUsedAt > validationIntervalMillis && !pooled.isValid()) {
+                pooled.closePhysical();
+                continue;
+            }
+            return pooled;
+        }
+
+        Connection raw = DriverManager.getConnection(url, user, password);
+        createdCount.incrementAndGet();
+        return new PooledConnection(raw);
+    }
+
+    private void release(PooledConnection pooled) {
+        long held = System.nanoTime() - pooled.borrowedNanos;
+        metrics.record("dao." + borrowerName(pooled.borrowTrace), held);
+        if (pooled.onEventThread) {
+            metrics.record("edt.dao", held);
+        }
+
+        borrowed.remove(pooled);
+        pooled.borrowTrace = null;
+
+        boolean reusable = !closed && resetState(pooled)
+                && System.currentTimeMillis() - pooled.createdAt <= maxLifetimeMillis;
+
+        if (reusable) {
+            pooled.lastUsedAt = System.currentTimeMillis();
+            idle.offerFirst(pooled);
+        } else {
+            pooled.closePhysical();
+        }
+        permits.release();
+    }
+
+    /**
+     * "Class.method" of the first caller outside the pool, e.g. "SaleDAO.getSalesPage"
+     */
+    private static String borrowerName(Throwable trace) {
+        if (trace == null) {
+            return "unknown";
+        }
+        for (StackTraceElement frame : trace.getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.equals(ConnectionPool.class.getName()) || className.equals(DatabaseConfig.class.getName())) {
+                continue;
+            }
+            String method = frame.getMethodName();
+            if (method.startsWith("lambda$")) {
+                // lambda$loadSales$3 -> loadSales
+                int end = method.indexOf('$', 7);
+                method = method.substring(7, end > 7 ? end : method.length());
+            }
+            return className.substring(className.lastIndexOf('.') + 1) + "." + method;
+        }
+        return "unknown";
+    }
+
+    /**
+     * Roll back anything a caller left open so the next borrower starts clean
+     */
+    private boolean resetState(PooledConnection pooled) {
+        try {
+            if (pooled.raw.isClosed()) {
+                return false;
+            }
+            if (!pooled.raw.getAutoCommit()) {
+                pooled.raw.rollback();
+                pooled.raw.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Evict idle/expired connections and report suspected leaks
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        Iterator<PooledConnection> it = idle.iterator();
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsedAt > idleTimeoutMillis || now - pooled.createdAt > maxLifetimeMillis) {
+                if (idle.remove(pooled)) {
+                    pooled.closePhysical();
+                }
+            }
+        }
+
+        for (PooledConnection pooled : borrowed) {
+            Throwable trace = pooled.borrowTrace;
+            if (!pooled.leakReported && trace != null && now - pooled.borrowedAt > leakThresholdMillis) {
+                pooled.leakReported = true;
+                System.err.println("Possible connection leak: connection held for " +
+                                   (now - pooled.borrowedAt) + "ms");
+                trace.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Close all idle connections and stop handing out new ones
+     */
+    public void shutdown() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Number of physical connections opened since startup
+     */
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getBorrowCount() {
+        return borrowCount.get();
+    }
+
+    /**
+     * Prepared statements served from a connection's statement cache
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * Prepared statements that had to be prepared on the server
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    /**
+     * Physical connection plus pool bookkeeping
+     */
+    private class PooledConnection {
+        private final Connection raw;
+        private final long createdAt;
+        private volatile long lastUsedAt;
+        private volatile long borrowedAt;
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+        private volatile long borrowedNanos;
+        private volatile boolean onEventThread;
+        private final StatementCache statements;
+
+        PooledConnection(Connection raw) {
+            this.raw = raw;
+            this.statements = new StatementCache(statementCacheSize, statementCacheHits, statementCacheMisses);
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+
+        boolean isValid() {
+            try {
+                return raw.isValid(2);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            statements.closeAll();
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                // already broken, nothing to do
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new Handle(this));
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection; close() hands it back exactly once
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean released = false;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    synchronized (this) {
+                        if (!released) {
+                            released = true;
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return released || pooled.raw.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.raw + "]";
+                default:
+                    break;
+            }
+
+            synchronized (this) {
+                if (released) {
+                    throw new SQLException("Connection has already been returned to the pool");
+                }
+            }
+
+            if (name.equals("prepareStatement") && isCacheable(args)) {
+                String key = args.length == 1 ? (String) args[0] : args[0] + "#keys=" + args[1];
+                return slowQueries.wrap(pooled.statements.prepare(key, () -> invokeRaw(method, args)), (String) args[0]);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (name.equals("prepareStatement")) {
+                return slowQueries.wrap((PreparedStatement) result, (String) args[0]);
+            }
+            if (name.equals("createStatement")) {
+                return slowQueries.wrap((Statement) result);
+            }
+            return result;
+        }
+
+        /**
+         * Only prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys) are cached
+         */
+        private boolean isCacheable(Object[] args) {
+            return statementCacheSize > 0 && args != null
+                && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+        }
+
+        private PreparedStatement invokeRaw(Method method, Object[] args) throws SQLException {
+            try {
+                return (PreparedStatement) method.invoke(pooled.raw, args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof SQLException) {
+                    throw (SQLException) e.getCause();
+                }
+                throw new SQLException(e.getCause());
+            } catch (IllegalAccessException e) {
+                throw new SQLException(e);
+            }
+        }
+    }
+}
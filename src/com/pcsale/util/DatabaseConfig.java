@@ -1,58 +1,77 @@
 package com.pcsale.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
  * Database Configuration and Connection Manager
- * Manages MySQL database connections for WAMP server
+ * Manages pooled MySQL database connections for WAMP server
  */
 public class DatabaseConfig {
     
     // Database credentials for WAMP server
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/pc_sale_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = ""; // Default WAMP password is empty
+    // (-Dpcsale.db.url / .user / .password point tools such as the benchmarks at another schema)
+    private static final String DB_URL = System.getProperty("pcsale.db.url",
+        "jdbc:mysql://localhost:3306/pc_sale_db?useServerPrepStmts=true&rewriteBatchedStatements=true");
+    private static final String DB_USER = System.getProperty("pcsale.db.user", "root");
+    private static final String DB_PASSWORD = System.getProperty("pcsale.db.password", ""); // Default WAMP password is empty
     private static final String DB_DRIVER = "com.mysql.cj.jdbc.Driver";
     
-    private static Connection connection = null;
+    // Connection pool settings
+    private static final int POOL_MAX_SIZE = Integer.getInteger("pcsale.db.poolSize", 10);
+    private static final long POOL_BORROW_TIMEOUT_MS = 10_000;
+    private static final long POOL_IDLE_TIMEOUT_MS = 10 * 60_000;
+    private static final long POOL_MAX_LIFETIME_MS = 30 * 60_000;
+    private static final long POOL_LEAK_THRESHOLD_MS = 60_000;
+    private static final int STATEMENT_CACHE_SIZE = 64; // per connection
+    
+    private static ConnectionPool pool = null;
+    
+    /**
+     * Get the shared connection pool, creating it on first use
+     */
+    public static synchronized ConnectionPool getPool() throws ClassNotFoundException {
+        if (pool == null) {
+            // Load MySQL JDBC Driver
+            Class.forName(DB_DRIVER);
+            pool = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_MAX_SIZE,
+                                      POOL_BORROW_TIMEOUT_MS, POOL_IDLE_TIMEOUT_MS,
+                                      POOL_MAX_LIFETIME_MS, POOL_LEAK_THRESHOLD_MS,
+                                      STATEMENT_CACHE_SIZE);
+            ConnectionPool created = pool;
+            Metrics.getInstance().gauge("db.pool.active", created::getActiveCount);
+            Metrics.getInstance().gauge("db.pool.idle", created::getIdleCount);
+        }
+        return pool;
+    }
     
     /**
-     * Get database connection
-     * @return Connection object
+     * Borrow a database connection from the pool.
+     * Closing the returned connection gives it back to the pool.
+     * @return Connection object, or null if no connection could be obtained
      */
     public static Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                // Load MySQL JDBC Driver
-                Class.forName(DB_DRIVER);
-                
-                // Create connection
-                connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-                System.out.println("Database connected successfully!");
-            }
+            return getPool().getConnection();
         } catch (ClassNotFoundException e) {
             System.err.println("MySQL JDBC Driver not found!");
             e.printStackTrace();
         } catch (SQLException e) {
+            Metrics.getInstance().increment("db.connection.failures");
             System.err.println("Database connection failed!");
             e.printStackTrace();
         }
-        return connection;
+        return null;
     }
     
     /**
-     * Close database connection
+     * Close all pooled database connections
      */
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+    public static synchronized void closeConnection() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+            System.out.println("Database connection pool closed.");
         }
     }
     
@@ -61,9 +80,8 @@ public class DatabaseConfig {
      * @return true if connection is successful
      */
     public static boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return conn != null && conn.isValid(2);
         } catch (SQLException e) {
             return false;
         }
@@ -0,0 +1,132 @@
+package com.pcsale.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics - Process-wide registry of latency timers, counters and gauges
+ *
+ * Timers are LatencyHistograms looked up by name, so recording costs one
+ * map lookup plus a lock-free increment. The connection pool times every
+ * DAO call (named after the DAO method that borrowed the connection),
+ * connection acquisition and database time spent on the Swing event
+ * thread. Every LOG_INTERVAL seconds (-Dpcsale.metrics.logSeconds, 0 = off)
+ * the timers active in that interval are printed with p50 / p99 / max,
+ * busiest first, and then reset.
+ */
+public class Metrics {
+
+    private static final long LOG_INTERVAL_SECONDS = Long.getLong("pcsale.metrics.logSeconds", 60);
+
+    private static final Metrics instance = new Metrics();
+
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<>();
+    private ScheduledExecutorService logger = null;
+
+    private Metrics() {
+    }
+
+    public static Metrics getInstance() {
+        return instance;
+    }
+
+    /**
+     * Latency timer for an operation, created on first use
+     */
+    public LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Record one duration against a named timer
+     */
+    public void record(String name, long nanos) {
+        timer(name).record(nanos);
+    }
+
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Register a value that is read whenever metrics are logged (e.g. pool size)
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Start the periodic metrics log line (no-op if disabled or already running)
+     */
+    public synchronized void startLogging() {
+        if (logger != null || LOG_INTERVAL_SECONDS <= 0) {
+            return;
+        }
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pcsale-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.scheduleAtFixedRate(() -> {
+            try {
+                System.out.print(report(true));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, LOG_INTERVAL_SECONDS, LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Text report of all gauges, counters and the timers used since the last reset
+     * @param reset clear the timers afterwards so the next report covers a new interval
+     */
+    public String report(boolean reset) {
+        StringBuilder out = new StringBuilder("[metrics]");
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            out.append(' ').append(gauge.getKey()).append('=').append(gauge.getValue().getAsLong());
+        }
+        counters.entrySet().stream()
+            .sorted(Map.Entry.comparingByKey())
+            .forEach(counter -> out.append(' ').append(counter.getKey()).append('=').append(counter.getValue().sum()));
+        out.append('\n');
+
+        // Busiest (most total time) first, so the queries hurting the tills are at the top
+        List<Map.Entry<String, LatencyHistogram>> active = new ArrayList<>();
+        for (Map.Entry<String, LatencyHistogram> timer : timers.entrySet()) {
+            if (timer.getValue().getCount() > 0) {
+                active.add(timer);
+            }
+        }
+        active.sort(Comparator.comparingDouble(
+            (Map.Entry<String, LatencyHistogram> e) -> e.getValue().getMeanNanos() * e.getValue().getCount()).reversed());
+
+        for (Map.Entry<String, LatencyHistogram> timer : active) {
+            LatencyHistogram histogram = timer.getValue();
+            out.append(String.format("[metrics]   %-48s n=%-7d p50=%8.2fms p99=%8.2fms max=%8.2fms%n",
+                    timer.getKey(), histogram.getCount(),
+                    histogram.getPercentileMillis(50), histogram.getPercentileMillis(99),
+                    histogram.getMaxNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1)));
+            if (reset) {
+                histogram.reset();
+            }
+        }
+        return out.toString();
+    }
+}
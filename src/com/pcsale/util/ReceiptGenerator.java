@@ -6,6 +6,7 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Date;
+import java.util.List;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import java.awt.Component;
@@ -99,6 +100,42 @@ public class ReceiptGenerator {
         }
     }
 
+    /**
+     * Export several receipts into one chosen folder (one file per sale)
+     */
+    public static void exportAllToFolder(Component parent, List<Sale> sales) {
+        String[] options = {"Text File (.txt)", "HTML File (.html)"};
+        int choice = JOptionPane.showOptionDialog(parent, 
+            "Select export format for " + sales.size() + " receipts:", 
+            "Export Receipts", 
+            JOptionPane.DEFAULT_OPTION, 
+            JOptionPane.QUESTION_MESSAGE, 
+            null, options, options[0]);
+        if (choice != 0 && choice != 1) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select Folder for Receipts");
+        fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (fileChooser.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File folder = fileChooser.getSelectedFile();
+        String extension = choice == 0 ? ".txt" : ".html";
+        for (Sale sale : sales) {
+            File file = new File(folder, "Receipt_" + sale.getInvoiceNo() + extension);
+            try (PrintWriter out = new PrintWriter(new FileWriter(file))) {
+                out.println(choice == 0 ? generateTextReceipt(sale) : generateHtmlReceipt(sale));
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(parent, "Error saving receipt: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        }
+        JOptionPane.showMessageDialog(parent, sales.size() + " receipts saved to " + folder.getAbsolutePath());
+    }
+
     private static void saveTextReceipt(Component parent, Sale sale) {
         String receiptContent = generateTextReceipt(sale);
         
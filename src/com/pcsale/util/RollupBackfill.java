@@ -0,0 +1,39 @@
+package com.pcsale.util;
+
+import com.pcsale.dao.SalesRollupDAO;
+
+import java.time.LocalDate;
+
+/**
+ * RollupBackfill - Rebuilds sales_daily / sales_hourly from the sales table
+ *
+ * Usage: java -cp "bin;lib\*" com.pcsale.util.RollupBackfill [from-date] [to-date]
+ * Dates are yyyy-MM-dd; by default every day from the first sale to today.
+ */
+public class RollupBackfill {
+
+    public static void main(String[] args) {
+        SalesRollupDAO rollupDAO = new SalesRollupDAO();
+
+        LocalDate from = args.length > 0 ? LocalDate.parse(args[0]) : rollupDAO.getFirstSaleDay();
+        LocalDate to = args.length > 1 ? LocalDate.parse(args[1]) : LocalDate.now();
+
+        try {
+            if (from == null) {
+                System.out.println("No sales to backfill.");
+                return;
+            }
+
+            System.out.println("Rebuilding sales rollups from " + from + " to " + to + "...");
+            long start = System.currentTimeMillis();
+            int days = rollupDAO.rebuild(from, to);
+            if (days < 0) {
+                System.out.println("Backfill failed.");
+                System.exit(1);
+            }
+            System.out.println("Rebuilt " + days + " days in " + (System.currentTimeMillis() - start) + " ms.");
+        } finally {
+            DatabaseConfig.closeConnection();
+        }
+    }
+}
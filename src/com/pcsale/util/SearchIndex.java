@@ -0,0 +1,238 @@
+package com.pcsale.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * SearchIndex - In-memory trigram index for search-as-you-type
+ *
+ * Matches the same rows as LIKE '%keyword%' on the indexed fields, but
+ * narrows candidates through trigram posting lists instead of scanning.
+ * Results are ranked: exact field match, then field prefix, then word
+ * prefix, then any substring; ties are ordered by the first field.
+ */
+public class SearchIndex<T> {
+
+    private static final int GRAM = 3;
+
+    private final Map<Integer, Entry<T>> entries = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add or replace a document. The first field is also used to order ties.
+     */
+    public void put(int id, T value, String... fields) {
+        String[] keys = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            keys[i] = normalize(fields[i]);
+        }
+
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            Entry<T> entry = new Entry<>(value, keys);
+            entries.put(id, entry);
+            for (String gram : gramsOf(keys)) {
+                postings.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Swap the value of an indexed document whose fields did not change
+     */
+    public void replaceValue(int id, T value) {
+        lock.writeLock().lock();
+        try {
+            Entry<T> old = entries.get(id);
+            if (old != null) {
+                entries.put(id, new Entry<>(value, old.keys));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return up to limit documents containing the query in any field, best matches first
+     */
+    public List<T> search(String query, int limit) {
+        String q = normalize(query);
+        List<T> results = new ArrayList<>();
+        if (q.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Match<T>> matches = new ArrayList<>();
+            for (Entry<T> entry : candidates(q)) {
+                int rank = entry.rank(q);
+                if (rank >= 0) {
+                    matches.add(new Match<>(entry, rank));
+                }
+            }
+
+            matches.sort((a, b) -> a.rank != b.rank
+                ? Integer.compare(a.rank, b.rank)
+                : a.entry.sortKey.compareTo(b.entry.sortKey));
+
+            for (int i = 0; i < matches.size() && i < limit; i++) {
+                results.add(matches.get(i).entry.value);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    /**
+     * Intersect posting lists of the query's trigrams, smallest first.
+     * Queries shorter than a trigram fall back to checking every entry.
+     */
+    private Iterable<Entry<T>> candidates(String q) {
+        if (q.length() < GRAM) {
+            return entries.values();
+        }
+
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (int i = 0; i + GRAM <= q.length(); i++) {
+            Set<Integer> ids = postings.get(q.substring(i, i + GRAM));
+            if (ids == null) {
+                return new ArrayList<>();
+            }
+            lists.add(ids);
+        }
+        lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+        List<Entry<T>> result = new ArrayList<>();
+        outer:
+        for (Integer id : lists.get(0)) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(entries.get(id));
+        }
+        return result;
+    }
+
+    private void removeInternal(int id) {
+        Entry<T> old = entries.remove(id);
+        if (old == null) {
+            return;
+        }
+        for (String gram : gramsOf(old.keys)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> gramsOf(String[] keys) {
+        Set<String> grams = new HashSet<>();
+        for (String key : keys) {
+            for (int i = 0; i + GRAM <= key.length(); i++) {
+                grams.add(key.substring(i, i + GRAM));
+            }
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Indexed document with its lowercased fields
+     */
+    private static class Entry<T> {
+        private final T value;
+        private final String[] keys;
+        private final String sortKey;
+
+        Entry(T value, String[] keys) {
+            this.value = value;
+            this.keys = keys;
+            this.sortKey = keys.length > 0 ? keys[0] : "";
+        }
+
+        /**
+         * 0 = exact, 1 = field prefix, 2 = word prefix, 3 = substring, -1 = no match
+         */
+        int rank(String q) {
+            int best = -1;
+            for (String key : keys) {
+                for (int pos = key.indexOf(q); pos >= 0; pos = key.indexOf(q, pos + 1)) {
+                    int rank;
+                    if (key.length() == q.length()) {
+                        rank = 0;
+                    } else if (pos == 0) {
+                        rank = 1;
+                    } else if (!Character.isLetterOrDigit(key.charAt(pos - 1))) {
+                        rank = 2;
+                    } else {
+                        rank = 3;
+                    }
+                    if (best < 0 || rank < best) {
+                        best = rank;
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class Match<T> {
+        private final Entry<T> entry;
+        private final int rank;
+
+        Match(Entry<T> entry, int rank) {
+            this.entry = entry;
+            this.rank = rank;
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package com.pcsale.util;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SlowQueryLog - Opt-in log of statements slower than a threshold, with their EXPLAIN plan
+ *
+ * Enabled with -Dpcsale.slowQuery.millis=N. The connection pool then wraps
+ * every statement it hands out: executions are timed, and bound parameters
+ * are remembered so a slow one can be logged with the exact values it ran
+ * with. For a slow query the rows read are counted until the result set or
+ * statement is closed. The entry (time, DAO method, SQL, parameters, rows)
+ * is then handed to a background thread, which runs EXPLAIN with the
+ * parameters filled in on a separate connection and appends everything to
+ * logs/slow-queries.log. The file rotates at MAX_FILE_BYTES, keeping
+ * MAX_OLD_FILES older copies (.1 is the newest).
+ */
+public class SlowQueryLog {
+
+    private static final long THRESHOLD_MS = Long.getLong("pcsale.slowQuery.millis", -1);
+    private static final long MAX_FILE_BYTES = 5L * 1024 * 1024;
+    private static final int MAX_OLD_FILES = 3;
+    private static final int MAX_PENDING = 1000;
+
+    private static final SlowQueryLog instance = new SlowQueryLog();
+
+    private final long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(THRESHOLD_MS);
+    private final ExecutorService writer;
+    private volatile Thread writerThread;
+    private File directory = new File("logs");
+
+    private SlowQueryLog() {
+        if (THRESHOLD_MS < 0) {
+            writer = null;
+            return;
+        }
+        // Bounded: if the database is so slow that entries pile up, drop them rather than the tills' memory
+        writer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(MAX_PENDING), r -> {
+            Thread t = new Thread(r, "pcsale-slow-query-log");
+            t.setDaemon(true);
+            writerThread = t;
+            return t;
+        });
+    }
+
+    public static SlowQueryLog getInstance() {
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Where the log file is written (default ./logs)
+     */
+    public synchronized void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Time a prepared statement's executions (returned unchanged when the log is off)
+     */
+    public PreparedStatement wrap(PreparedStatement statement, String sql) {
+        if (!shouldWrap()) {
+            return statement;
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(),
+            new Class<?>[]{PreparedStatement.class},
+            new TimedStatement(statement, sql));
+    }
+
+    /**
+     * Time a plain statement's executions (returned unchanged when the log is off)
+     */
+    public Statement wrap(Statement statement) {
+        if (!shouldWrap()) {
+            return statement;
+        }
+        return (Statement) Proxy.newProxyInstance(
+            Statement.class.getClassLoader(),
+            new Class<?>[]{Statement.class},
+            new TimedStatement(statement, null));
+    }
+
+    /**
+     * Never time the log's own EXPLAIN queries
+     */
+    private boolean shouldWrap() {
+        return writer != null && Thread.currentThread() != writerThread;
+    }
+
+    private void submit(Entry entry) {
+        Metrics.getInstance().increment("db.slowQueries");
+        try {
+            writer.execute(() -> {
+                try {
+                    write(entry, explain(entry));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            Metrics.getInstance().increment("db.slowQueries.dropped");
+        }
+    }
+
+    /**
+     * EXPLAIN the statement with its parameters inlined, one line per plan row
+     */
+    private List<String> explain(Entry entry) {
+        List<String> plan = new ArrayList<>();
+        String verb = entry.sql.trim().split("\\s+", 2)[0].toUpperCase();
+        if (!verb.equals("SELECT") && !verb.equals("WITH") && !verb.equals("UPDATE")
+                && !verb.equals("DELETE") && !verb.equals("INSERT") && !verb.equals("REPLACE")) {
+            return plan;
+        }
+
+        Connection conn = DatabaseConfig.getConnection();
+        if (conn == null) {
+            plan.add("skipped, database unavailable");
+            return plan;
+        }
+        try (Connection c = conn;
+             Statement stmt = c.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN " + inline(entry.sql, entry.parameters))) {
+
+            ResultSetMetaData meta = rs.getMetaData();
+            while (rs.next()) {
+                StringBuilder row = new StringBuilder();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    Object value = rs.getObject(i);
+                    if (value != null) {
+                        row.append(row.length() == 0 ? "" : " ").append(meta.getColumnLabel(i)).append('=').append(value);
+                    }
+                }
+                plan.add(row.toString());
+            }
+        } catch (SQLException | RuntimeException e) {
+            plan.add("failed: " + e.getMessage());
+        }
+        return plan;
+    }
+
+    /**
+     * Replace each ? outside string literals with the bound value as an SQL literal
+     */
+    private static String inline(String sql, Map<Integer, Object> parameters) {
+        StringBuilder out = new StringBuilder();
+        int index = 0;
+        char quote = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+                out.append(c);
+            } else if (c == '\'' || c == '"' || c == '`') {
+                quote = c;
+                out.append(c);
+            } else if (c == '?') {
+                out.append(literal(parameters.get(++index)));
+            } else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static String literal(Object value) {
+        if (value == null) {
+            return "NULL";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        return "'" + value.toString().replace("\\", "\\\\").replace("'", "''") + "'";
+    }
+
+    private synchronized void write(Entry entry, List<String> plan) {
+        StringBuilder text = new StringBuilder();
+        text.append(entry.at).append(' ').append(TimeUnit.NANOSECONDS.toMillis(entry.nanos)).append("ms ")
+            .append(entry.caller).append(" rows=").append(entry.rows).append('\n');
+        text.append("  SQL: ").append(entry.sql.replaceAll("\\s+", " ").trim()).append('\n');
+        if (!entry.parameters.isEmpty()) {
+            text.append("  Params: ").append(entry.parameters.values()).append('\n');
+        }
+        for (String row : plan) {
+            text.append("  EXPLAIN: ").append(row).append('\n');
+        }
+
+        File file = new File(directory, "slow-queries.log");
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            if (file.length() > MAX_FILE_BYTES) {
+                rotate(file);
+            }
+            try (Writer out = new FileWriter(file, true)) {
+                out.write(text.toString());
+            }
+        } catch (IOException e) {
+            System.err.println("Slow query log unavailable");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * slow-queries.log -> .1 -> .2 ... dropping the oldest
+     */
+    private void rotate(File file) {
+        new File(directory, file.getName() + "." + MAX_OLD_FILES).delete();
+        for (int i = MAX_OLD_FILES - 1; i >= 1; i--) {
+            new File(directory, file.getName() + "." + i).renameTo(new File(directory, file.getName() + "." + (i + 1)));
+        }
+        file.renameTo(new File(directory, file.getName() + ".1"));
+    }
+
+    /**
+     * "Class.method" of the first pcsale caller outside the JDBC wrappers
+     */
+    private static String caller() {
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith("com.pcsale.") && !className.startsWith(SlowQueryLog.class.getName())
+                    && !className.startsWith(StatementCache.class.getName())
+                    && !className.startsWith(ConnectionPool.class.getName())) {
+                return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+            }
+        }
+        return "unknown";
+    }
+
+    /**
+     * A slow execution waiting to be written
+     */
+    private static class Entry {
+        private final LocalDateTime at = LocalDateTime.now().withNano(0);
+        private final String caller = caller();
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final long nanos;
+        private long rows;
+
+        Entry(String sql, Map<Integer, Object> parameters, long nanos) {
+            this.sql = sql;
+            this.parameters = new TreeMap<>(parameters);
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Statement wrapper: records bound parameters and times executions
+     */
+    private class TimedStatement implements InvocationHandler {
+        private final Statement raw;
+        private final String preparedSql;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private Entry pendingQuery; // slow query whose rows are still being read
+
+        TimedStatement(Statement raw, String preparedSql) {
+            this.raw = raw;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    flushPending();
+                    break;
+                case "clearParameters":
+                    parameters.clear();
+                    break;
+                default:
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+
+            if (!name.startsWith("execute")) {
+                return call(method, args);
+            }
+
+            flushPending();
+            long start = System.nanoTime();
+            Object result = call(method, args);
+            long elapsed = System.nanoTime() - start;
+            if (elapsed < thresholdNanos) {
+                return result;
+            }
+
+            String sql = preparedSql != null ? preparedSql
+                : args != null && args[0] instanceof String ? (String) args[0] : "(batch)";
+            Entry entry = new Entry(sql, parameters, elapsed);
+            if (result instanceof ResultSet) {
+                pendingQuery = entry;
+                return countRows((ResultSet) result);
+            }
+            if (result instanceof Integer) {
+                entry.rows = (Integer) result;
+            } else if (result instanceof Long) {
+                entry.rows = (Long) result;
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    entry.rows += Math.max(0, count);
+                }
+            }
+            submit(entry);
+            return result;
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void flushPending() {
+            if (pendingQuery != null) {
+                submit(pendingQuery);
+                pendingQuery = null;
+            }
+        }
+
+        /**
+         * Result set wrapper counting rows for the pending entry; logs it on close
+         */
+        private ResultSet countRows(ResultSet rs) {
+            Entry entry = pendingQuery;
+            return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "close":
+                            if (pendingQuery == entry) {
+                                flushPending();
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    Object result;
+                    try {
+                        result = method.invoke(rs, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                        entry.rows++;
+                    }
+                    return result;
+                });
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.pcsale.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * StatementCache - LRU cache of prepared statements for one pooled connection
+ *
+ * Statements are keyed by SQL text (plus the generated-keys flag). Closing a
+ * statement handed out by the cache only clears its parameters, so the next
+ * DAO call with the same SQL on the same connection skips the prepare.
+ */
+public class StatementCache {
+
+    /**
+     * Creates the real statement on a cache miss
+     */
+    public interface Preparer {
+        PreparedStatement prepare() throws SQLException;
+    }
+
+    private final int capacity;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, CachedStatement> entries;
+
+    public StatementCache(int capacity, AtomicLong hits, AtomicLong misses) {
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Get a cached statement for the key, preparing it on a miss
+     */
+    public synchronized PreparedStatement prepare(String key, Preparer preparer) throws SQLException {
+        CachedStatement cached = entries.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.handle;
+        }
+
+        misses.incrementAndGet();
+        PreparedStatement raw = preparer.prepare();
+        if (cached != null) {
+            // Same SQL already open on this connection (nested use); don't cache the duplicate
+            CachedStatement uncached = new CachedStatement(raw);
+            uncached.evicted = true;
+            uncached.inUse = true;
+            return uncached.handle;
+        }
+
+        CachedStatement created = new CachedStatement(raw);
+        created.inUse = true;
+        entries.put(key, created);
+        evictOverflow();
+        return created.handle;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedStatement>> it = entries.entrySet().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next().getValue();
+            it.remove();
+            eldest.evicted = true;
+            if (!eldest.inUse) {
+                eldest.closeQuietly();
+            }
+        }
+    }
+
+    private synchronized void release(CachedStatement cached) {
+        cached.inUse = false;
+        cached.closeResult();
+        if (cached.evicted) {
+            cached.closeQuietly();
+            return;
+        }
+        try {
+            cached.raw.clearParameters();
+            cached.raw.clearBatch();
+        } catch (SQLException e) {
+            entries.values().remove(cached);
+            cached.closeQuietly();
+        }
+    }
+
+    /**
+     * Close every cached statement (called when the physical connection closes)
+     */
+    public synchronized void closeAll() {
+        List<CachedStatement> all = new ArrayList<>(entries.values());
+        entries.clear();
+        for (CachedStatement cached : all) {
+            cached.evicted = true;
+            cached.closeQuietly();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * A real statement plus the proxy handed to DAO code
+     */
+    private class CachedStatement implements InvocationHandler {
+        private final PreparedStatement raw;
+        private final PreparedStatement handle;
+        private boolean inUse;
+        private boolean evicted;
+        private ResultSet lastResult;
+
+        CachedStatement(PreparedStatement raw) {
+            this.raw = raw;
+            this.handle = (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (StatementCache.this) {
+                        if (inUse) {
+                            release(this);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (StatementCache.this) {
+                        return !inUse;
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + raw + "]";
+                default:
+                    break;
+            }
+
+            synchronized (StatementCache.this) {
+                if (!inUse) {
+                    throw new SQLException("Statement has already been closed");
+                }
+            }
+
+            try {
+                Object result = method.invoke(raw, args);
+                if (result instanceof ResultSet && method.getName().equals("executeQuery")) {
+                    lastResult = (ResultSet) result;
+                }
+                return result;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        void closeResult() {
+            if (lastResult != null) {
+                try {
+                    lastResult.close();
+                } catch (SQLException e) {
+                    // statement is being recycled anyway
+                }
+                lastResult = null;
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                raw.close();
+            } catch (SQLException e) {
+                // connection may already be gone
+            }
+        }
+    }
+}